@@ -0,0 +1,462 @@
+import java.io.Closeable;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AdmissionGateway takes friend requests and chat messages in through bounded queues, so a burst degrades
+ * into rejected or shed work instead of an ever growing backlog.
+ *
+ * <p>Work is first checked against the sender's token bucket: a sender may send a burst of messages at once
+ * and then ratePerSecond per second, and anything beyond that is refused before it takes a queue slot. Admitted
+ * work goes to the queue of one of a fixed set of workers, chosen by sender, so the work of one sender runs in
+ * the order it was admitted. When that queue is full, the {@link Policy} decides what happens. Queue depth and
+ * a counter for every outcome are exposed for monitoring. A bucket that has refilled is no different from a new
+ * one, so buckets idle that long are dropped as new senders arrive, and only recent senders keep one.</p>
+ *
+ * <p>A task holds its queue slot until it is done, not until a worker picks it up: a chat keeps its slot
+ * until the bus has delivered it, so a burst of chats is bounded here instead of piling up in the bus inboxes.
+ * Closing waits for submissions in progress, so every accepted task runs.</p>
+ *
+ * <p>Friend requests go to a {@link FriendRequestService} and chats to a {@link MessageBus}.</p>
+ */
+public class AdmissionGateway implements Closeable {
+    /**
+     * What to do with work whose queue is full.
+     */
+    public enum Policy {
+        REJECT,      // refuse the new work
+        DROP_OLDEST, // shed the oldest queued work of the same worker to make room
+        CALLER_RUNS, // run the work in the submitting thread, which slows the sender down
+        BLOCK        // wait for room
+    }
+
+    /**
+     * Outcome of a submission.
+     */
+    public enum Admission {
+        ACCEPTED,
+        RAN_IN_CALLER,
+        RATE_LIMITED,
+        REJECTED
+    }
+
+    private static final int MIN_SWEEP = 1024; // fewest buckets created between two sweeps
+
+    private final FriendRequestService friendRequests;
+    private final MessageBus messages;
+    private final Policy policy;
+    private final double ratePerSecond;
+    private final double burst;
+    private final Worker[] workers;
+    private final ConcurrentHashMap<UniversityStudent, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger bucketsCreated = new AtomicInteger(); // since the last sweep
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private volatile int sweepAfter = MIN_SWEEP; // buckets to create before the next sweep
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger submitting = new AtomicInteger(); // submissions past the closed check
+    private final AtomicInteger peakDepth = new AtomicInteger();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder ranInCaller = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean closed;  // no new submissions
+    private volatile boolean stopped; // no submission in progress either; the workers drain and exit
+
+    /**
+     * Constructor for AdmissionGateway with default settings: the shared services, one worker per available
+     * processor, 10,000 queued tasks, rejection when full, and 50 messages per second per sender with bursts
+     * of 100.
+     */
+    public AdmissionGateway() {
+        this(FriendRequestService.shared(), MessageBus.shared(), Runtime.getRuntime().availableProcessors(),
+                10_000, Policy.REJECT, 50, 100);
+    }
+
+    /**
+     * Constructor for AdmissionGateway.
+     * @param friendRequests The service recording friend requests.
+     * @param messages The bus delivering chat messages.
+     * @param workers The number of worker threads.
+     * @param queueCapacity The total number of queued tasks, split evenly between the workers.
+     * @param policy What to do with work whose queue is full.
+     * @param ratePerSecond Messages each sender may send per second, or 0 for no limit.
+     * @param burst Messages each sender may send at once.
+     */
+    public AdmissionGateway(FriendRequestService friendRequests, MessageBus messages, int workers, int queueCapacity,
+                            Policy policy, double ratePerSecond, int burst) {
+        if (workers < 1 || queueCapacity < workers) {
+            throw new IllegalArgumentException("Need at least one worker and one queue slot per worker: "
+                    + workers + " workers, capacity " + queueCapacity);
+        }
+        if (ratePerSecond > 0 && burst < 1) {
+            throw new IllegalArgumentException("Burst must be at least 1: " + burst);
+        }
+        this.friendRequests = friendRequests;
+        this.messages = messages;
+        this.policy = policy;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.workers = new Worker[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new Worker(queueCapacity / workers + (i < queueCapacity % workers ? 1 : 0),
+                    "admission-worker-" + i);
+        }
+        for (Worker worker : this.workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * Submits a friend request.
+     * @param sender The student sending the request.
+     * @param receiver The student receiving it.
+     * @return Whether the request was admitted.
+     */
+    public Admission submitFriendRequest(UniversityStudent sender, UniversityStudent receiver) {
+        return admit(sender, done -> {
+            friendRequests.send(sender, receiver);
+            done.run();
+        });
+    }
+
+    /**
+     * Submits a chat message.
+     * @param sender The student sending the message.
+     * @param receiver The student receiving it.
+     * @param message The text of the message.
+     * @return Whether the message was admitted.
+     */
+    public Admission submitChat(UniversityStudent sender, UniversityStudent receiver, String message) {
+        return admit(sender, done -> messages.send(sender, receiver, message, done));
+    }
+
+    /**
+     * Submits work on behalf of a sender, under the same rate limit and queue bounds.
+     * @param sender The student the work is charged to.
+     * @param task The work.
+     * @return Whether the work was admitted.
+     */
+    public Admission submit(UniversityStudent sender, Runnable task) {
+        return admit(sender, done -> {
+            task.run();
+            done.run();
+        });
+    }
+
+    private Admission admit(UniversityStudent sender, Task task) {
+        submitting.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Admission gateway is closed.");
+            }
+            return admitOpen(sender, task);
+        } finally {
+            submitting.decrementAndGet();
+        }
+    }
+
+    private Admission admitOpen(UniversityStudent sender, Task task) {
+        if (ratePerSecond > 0 && !takeToken(sender)) {
+            rateLimited.increment();
+            return Admission.RATE_LIMITED;
+        }
+        Worker worker = workers[Math.floorMod(System.identityHashCode(sender), workers.length)];
+        if (worker.slots.tryAcquire()) {
+            enqueue(worker, task);
+            return Admission.ACCEPTED;
+        }
+        switch (policy) {
+            case DROP_OLDEST:
+                while (!worker.slots.tryAcquire()) {
+                    Task oldest = worker.queue.poll();
+                    if (oldest == null) {
+                        //every slot is held by work already running or in delivery, which cannot be dropped
+                        rejected.increment();
+                        return Admission.REJECTED;
+                    }
+                    shed.increment();
+                    release(worker);
+                }
+                enqueue(worker, task);
+                return Admission.ACCEPTED;
+            case CALLER_RUNS:
+                ranInCaller.increment();
+                runInCaller(task);
+                return Admission.RAN_IN_CALLER;
+            case BLOCK:
+                try {
+                    worker.slots.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    rejected.increment();
+                    return Admission.REJECTED;
+                }
+                enqueue(worker, task);
+                return Admission.ACCEPTED;
+            default:
+                rejected.increment();
+                return Admission.REJECTED;
+        }
+    }
+
+    //queues a task whose slot has been taken
+    private void enqueue(Worker worker, Task task) {
+        peakDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+        worker.queue.add(task);
+        accepted.increment();
+    }
+
+    private void release(Worker worker) {
+        depth.decrementAndGet();
+        worker.slots.release();
+    }
+
+    //runs a task and frees its slot once it is done, which for a chat is after delivery
+    private void run(Worker worker, Task task) {
+        AtomicBoolean finished = new AtomicBoolean();
+        try {
+            task.start(() -> {
+                if (finished.compareAndSet(false, true)) {
+                    completed.increment();
+                    release(worker);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (finished.compareAndSet(false, true)) {
+                failed.increment();
+                release(worker);
+            }
+        }
+    }
+
+    //runs a task in the submitting thread and waits until it is done, so the sender is slowed down
+    private void runInCaller(Task task) {
+        CountDownLatch done = new CountDownLatch(1);
+        try {
+            task.start(done::countDown);
+        } catch (RuntimeException e) {
+            failed.increment();
+            return;
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        completed.increment();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //number of admitted tasks not done yet: queued, running, or chats waiting for delivery
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    //largest number of tasks that were not done at once, as counted by getQueueDepth
+    public int getPeakQueueDepth() {
+        return peakDepth.get();
+    }
+
+    //number of submissions queued
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    //number of submissions run by the submitting thread because their queue was full
+    public long getRanInCallerCount() {
+        return ranInCaller.sum();
+    }
+
+    //number of submissions refused by the sender's rate limit
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    //number of submissions refused because their queue was full
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    //number of queued tasks dropped to make room for newer ones
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    //number of tasks done, by the workers or by submitting threads; a chat is done once delivered
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    //number of tasks that threw an exception before they were done
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * Stops taking work, waits for submissions in progress, runs what is already queued and stops the workers.
+     * Chats handed to the bus are delivered by the bus.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        //a submission either saw closed and backed out, or is counted here until its task is queued
+        while (submitting.get() > 0) {
+            Thread.onSpinWait();
+        }
+        stopped = true;
+        for (Worker worker : workers) {
+            worker.thread.interrupt();
+        }
+        boolean interrupted = false;
+        for (Worker worker : workers) {
+            while (worker.thread.isAlive()) {
+                try {
+                    worker.thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //tokens refill continuously at the rate, up to the burst; a ReentrantLock, so waiting virtual threads do not pin
+    //takes a token from the sender's bucket, creating the bucket if the sender has none
+    private boolean takeToken(UniversityStudent sender) {
+        while (true) {
+            TokenBucket bucket = buckets.get(sender);
+            if (bucket == null) {
+                bucket = buckets.computeIfAbsent(sender, s -> {
+                    bucketsCreated.incrementAndGet();
+                    return new TokenBucket(burst);
+                });
+                if (bucketsCreated.get() >= sweepAfter) {
+                    sweep();
+                }
+            }
+            int taken = bucket.take(ratePerSecond, burst);
+            if (taken != TokenBucket.RETIRED) {
+                return taken == TokenBucket.TAKEN;
+            }
+            //swept between the lookup and the take; its replacement starts full, as the bucket was
+        }
+    }
+
+    //drops the buckets that have refilled, once as many buckets were created since the last sweep as were left
+    //by it, so sweeping costs a constant amount per bucket created
+    private void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            bucketsCreated.set(0);
+            long now = System.nanoTime();
+            buckets.entrySet().removeIf(e -> e.getValue().retireIfFull(now, ratePerSecond, burst));
+            sweepAfter = Math.max(MIN_SWEEP, buckets.size());
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    //number of senders with a token bucket
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    private static class TokenBucket {
+        static final int TAKEN = 0;
+        static final int EMPTY = 1;
+        static final int RETIRED = 2;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private double tokens;
+        private long last = System.nanoTime();
+        private boolean retired; // dropped from the map; the sender gets a new bucket
+
+        TokenBucket(double burst) {
+            tokens = burst;
+        }
+
+        int take(double ratePerSecond, double burst) {
+            lock.lock();
+            try {
+                if (retired) {
+                    return RETIRED;
+                }
+                long now = System.nanoTime();
+                tokens = Math.min(burst, tokens + (now - last) * ratePerSecond / 1e9);
+                last = now;
+                if (tokens < 1) {
+                    return EMPTY;
+                }
+                tokens -= 1;
+                return TAKEN;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        //retires the bucket if it has refilled by now, so a new one would behave the same
+        boolean retireIfFull(long now, double ratePerSecond, double burst) {
+            lock.lock();
+            try {
+                if (tokens + (now - last) * ratePerSecond / 1e9 >= burst) {
+                    retired = true;
+                }
+                return retired;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //work that calls done when it is finished, which may be after start returns
+    private interface Task {
+        void start(Runnable done);
+    }
+
+    //the queue is bounded by the slots, which are held until a task is done
+    private class Worker implements Runnable {
+        final LinkedBlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+        final Semaphore slots;
+        final Thread thread;
+
+        Worker(int capacity, String name) {
+            slots = new Semaphore(capacity);
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task task;
+                if (stopped) {
+                    task = queue.poll();
+                    if (task == null) {
+                        return;
+                    }
+                } else {
+                    try {
+                        task = queue.take();
+                    } catch (InterruptedException e) {
+                        continue; // closing; drain what is left
+                    }
+                }
+                AdmissionGateway.this.run(this, task);
+            }
+        }
+    }
+}
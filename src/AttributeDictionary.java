@@ -0,0 +1,88 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AttributeDictionary encodes the strings of student attributes (genders, majors, companies) as dense int IDs.
+ * Every distinct string is stored once: students keep the canonical instance returned by {@link #canonical(String)},
+ * so a major or company shared by a million students costs one String on the heap, and comparisons between
+ * students become int comparisons. IDs are stable for the life of the process. The dictionary is thread-safe,
+ * and looking up a string it already holds takes no lock; only adding a new string does.
+ *
+ * <p>The dictionary is shared by every graph in the process and never forgets a string, so it only holds
+ * attributes drawn from a small vocabulary. Names, one per student, are not put in it; otherwise it would grow
+ * with every student ever created.</p>
+ */
+public final class AttributeDictionary {
+    private static final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private static final ReentrantLock addLock = new ReentrantLock();
+    private static volatile String[] words = new String[64]; // by ID; replaced by a larger copy when full
+
+    private AttributeDictionary() {
+    }
+
+    //returns the ID of the string, adding it to the dictionary the first time it is seen; null maps to -1
+    public static int idOf(String word) {
+        if (word == null) {
+            return -1;
+        }
+        Integer id = ids.get(word);
+        if (id != null) {
+            return id;
+        }
+        addLock.lock();
+        try {
+            id = ids.get(word);
+            if (id != null) {
+                return id;
+            }
+            int next = ids.size();
+            String[] array = words;
+            if (next == array.length) {
+                array = Arrays.copyOf(array, next * 2);
+            }
+            array[next] = word;
+            words = array; // published before the ID, so whoever finds the ID finds the word
+            ids.put(word, next);
+            return next;
+        } finally {
+            addLock.unlock();
+        }
+    }
+
+    //returns the string with the given ID
+    public static String wordOf(int id) {
+        if (id < 0 || id >= ids.size()) {
+            throw new IndexOutOfBoundsException("No word with ID " + id);
+        }
+        return words[id];
+    }
+
+    //returns the shared instance of the string, so equal attributes do not keep separate copies
+    public static String canonical(String word) {
+        return word == null ? null : wordOf(idOf(word));
+    }
+
+    //resolves each string of the list to its ID, in list order
+    static int[] idsOf(List<String> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = idOf(list.get(i));
+        }
+        return result;
+    }
+
+    //returns an unmodifiable copy of the list holding the shared instance of every string
+    static List<String> canonicalList(List<String> list) {
+        List<String> result = new ArrayList<>(list.size());
+        for (String word : list) {
+            result.add(canonical(word));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    //number of distinct strings
+    public static int size() {
+        return ids.size();
+    }
+}
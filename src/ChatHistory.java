@@ -0,0 +1,294 @@
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ChatHistory is the chat history of one student: the messages they received, in the order they arrived,
+ * grouped into one conversation per sender. Every conversation keeps its recent messages in a ring buffer
+ * and spills older ones to its {@link ChatHistoryStore}. Histories are created by
+ * {@link ChatHistoryStore#newHistory()}, and their methods hold a lock of the history, so students receiving
+ * messages at the same time do not wait on each other unless a message spills. The lock is a
+ * {@link ReentrantLock}, so a virtual thread waiting for it parks instead of pinning its carrier thread.
+ *
+ * <p>Pages are immutable lists. Positions count from the oldest message: position p of the history is the
+ * p-th message the student received, and position p of a conversation the p-th message from that sender.</p>
+ */
+public class ChatHistory {
+    private final ChatHistoryStore store;
+    private final int ringCapacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Conversation> conversations = new LinkedHashMap<>();
+    private long size;
+
+    ChatHistory(ChatHistoryStore store, int ringCapacity) {
+        this.store = store;
+        this.ringCapacity = ringCapacity;
+    }
+
+    /**
+     * Adds a message at the end of the history, timestamped now.
+     * @param sender The name of the student who sent it.
+     * @param text The text of the message.
+     */
+    public void add(String sender, String text) {
+        add(new ChatMessage(sender, System.currentTimeMillis(), text));
+    }
+
+    /**
+     * Adds a message at the end of the history.
+     * @param message The message.
+     */
+    public void add(ChatMessage message) {
+        lock.lock();
+        try {
+            Conversation conversation = conversations.get(message.getSender());
+            if (conversation == null) {
+                conversation = new Conversation(message.getSender(), ringCapacity);
+                conversations.put(message.getSender(), conversation);
+            }
+            conversation.add(message, size++);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //number of messages in the history
+    public long size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //number of messages from one sender
+    public long size(String sender) {
+        lock.lock();
+        try {
+            Conversation conversation = conversations.get(sender);
+            return conversation == null ? 0 : conversation.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //names of the students who sent messages, in the order of their first message
+    public List<String> getSenders() {
+        lock.lock();
+        try {
+            return Collections.unmodifiableList(new ArrayList<>(conversations.keySet()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a page of the history.
+     * @param offset The position of the first message of the page.
+     * @param limit The maximum number of messages in the page.
+     * @return The messages from offset on, oldest first; empty if offset is past the end.
+     */
+    public List<ChatMessage> page(long offset, int limit) {
+        checkPage(offset, limit);
+        lock.lock();
+        try {
+            long from = Math.min(offset, size);
+            long to = Math.min(size, from + limit);
+            ChatMessage[] page = new ChatMessage[(int) (to - from)];
+            if (page.length > 0) {
+                for (Conversation conversation : conversations.values()) {
+                    if (conversation.lastSequence() >= from && conversation.firstSequence < to) {
+                        conversation.collect(conversation.lowerBound(from), conversation.lowerBound(to), page,
+                                from);
+                    }
+                }
+            }
+            return Collections.unmodifiableList(Arrays.asList(page));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a page of the messages from one sender.
+     * @param sender The name of the sender.
+     * @param offset The position of the first message of the page within the conversation.
+     * @param limit The maximum number of messages in the page.
+     * @return The messages from offset on, oldest first; empty if offset is past the end.
+     */
+    public List<ChatMessage> page(String sender, long offset, int limit) {
+        checkPage(offset, limit);
+        lock.lock();
+        try {
+            Conversation conversation = conversations.get(sender);
+            if (conversation == null || offset >= conversation.size()) {
+                return Collections.emptyList();
+            }
+            long to = Math.min(conversation.size(), offset + limit);
+            ChatMessage[] page = new ChatMessage[(int) (to - offset)];
+            conversation.collect(offset, to, page, -1);
+            return Collections.unmodifiableList(Arrays.asList(page));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //rejects a negative offset or limit
+    static void checkPage(long offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Invalid page: offset " + offset + ", limit " + limit);
+        }
+    }
+
+    //messages from one sender: the spilled ones in the store, the recent ones in a ring
+    private class Conversation {
+        final String sender;
+        final int capacity;
+        ChatMessage[] ring;  // grows to capacity before the first spill, while head is still 0
+        long[] ringSequence;
+        int head;
+        int count;
+        long firstSequence = -1;
+
+        long spilled;
+        long lastOffset = -1;
+        long lastSpilledSequence = -1;
+        long[] checkpointOffset = new long[4]; // offset of spilled message k * CHECKPOINT + CHECKPOINT - 1
+        long[] checkpointSequence = new long[4];
+        int checkpoints;
+
+        Conversation(String sender, int capacity) {
+            this.sender = sender;
+            this.capacity = capacity;
+            ring = new ChatMessage[Math.min(capacity, 4)];
+            ringSequence = new long[ring.length];
+        }
+
+        long size() {
+            return spilled + count;
+        }
+
+        long lastSequence() {
+            return count > 0 ? ringSequence[(head + count - 1) % ring.length] : lastSpilledSequence;
+        }
+
+        void add(ChatMessage message, long sequence) {
+            if (firstSequence < 0) {
+                firstSequence = sequence;
+            }
+            if (count == ring.length && ring.length < capacity) {
+                int length = (int) Math.min(capacity, ring.length * 2L);
+                ring = Arrays.copyOf(ring, length);
+                ringSequence = Arrays.copyOf(ringSequence, length);
+            }
+            if (count < ring.length) {
+                int slot = (head + count++) % ring.length;
+                ring[slot] = message;
+                ringSequence[slot] = sequence;
+                return;
+            }
+            ChatMessage oldest = ring[head];
+            long offset = store.append(lastOffset, ringSequence[head], oldest.getTimestamp(), oldest.getText());
+            if (spilled % ChatHistoryStore.CHECKPOINT == ChatHistoryStore.CHECKPOINT - 1) {
+                if (checkpoints == checkpointOffset.length) {
+                    checkpointOffset = Arrays.copyOf(checkpointOffset, checkpoints * 2);
+                    checkpointSequence = Arrays.copyOf(checkpointSequence, checkpoints * 2);
+                }
+                checkpointOffset[checkpoints] = offset;
+                checkpointSequence[checkpoints++] = ringSequence[head];
+            }
+            lastOffset = offset;
+            lastSpilledSequence = ringSequence[head];
+            spilled++;
+            ring[head] = message;
+            ringSequence[head] = sequence;
+            head = (head + 1) % ring.length;
+        }
+
+        //offset of spilled message i, walking back from the nearest checkpoint at or after it
+        long offsetOf(long i) {
+            long c = i / ChatHistoryStore.CHECKPOINT;
+            long at;
+            long offset;
+            if (c < checkpoints) {
+                at = c * ChatHistoryStore.CHECKPOINT + ChatHistoryStore.CHECKPOINT - 1;
+                offset = checkpointOffset[(int) c];
+            } else {
+                at = spilled - 1;
+                offset = lastOffset;
+            }
+            for (; at > i; at--) {
+                offset = store.previous(offset);
+            }
+            return offset;
+        }
+
+        //position in the conversation of its first message at or after a position of the history
+        long lowerBound(long sequence) {
+            if (spilled == 0 || lastSpilledSequence < sequence) {
+                int lo = 0;
+                int hi = count;
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (ringSequence[(head + mid) % ring.length] < sequence) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                return spilled + lo;
+            }
+            int lo = 0;
+            int hi = checkpoints;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (checkpointSequence[mid] < sequence) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            long at;
+            long offset;
+            if (lo < checkpoints) {
+                at = (long) lo * ChatHistoryStore.CHECKPOINT + ChatHistoryStore.CHECKPOINT - 1;
+                offset = checkpointOffset[lo];
+            } else {
+                at = spilled - 1;
+                offset = lastOffset;
+            }
+            //walk back while the message before is still at or after the sequence
+            while (at > 0) {
+                long previous = store.previous(offset);
+                if (store.sequence(previous) < sequence) {
+                    break;
+                }
+                offset = previous;
+                at--;
+            }
+            return at;
+        }
+
+        //puts the messages at positions [from, to) into page, at their history position minus base, or in
+        //order from the start of page if base is -1
+        void collect(long from, long to, ChatMessage[] page, long base) {
+            long ringFrom = Math.max(from, spilled);
+            for (long i = ringFrom; i < to; i++) {
+                int slot = (int) ((head + i - spilled) % ring.length);
+                page[(int) (base < 0 ? i - from : ringSequence[slot] - base)] = ring[slot];
+            }
+            long fileTo = Math.min(to, spilled);
+            if (from >= fileTo) {
+                return;
+            }
+            long offset = offsetOf(fileTo - 1);
+            for (long i = fileTo - 1; i >= from; i--) {
+                int index = (int) (base < 0 ? i - from : store.sequence(offset) - base);
+                page[index] = store.read(offset, sender);
+                if (i > from) {
+                    offset = store.previous(offset);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ChatHistoryStore holds the chat histories of students within a bounded amount of heap.
+ * Each {@link ChatHistory} keeps the most recent messages of every conversation in a ring buffer; when a ring
+ * is full, its oldest message is spilled to an append-only segment file, mapped into memory segment by segment.
+ * A spilled record points back to the previous spilled record of its conversation, and the history keeps the
+ * position of every 64th one, so a spilled message is found in at most 64 steps from the heap.
+ *
+ * <p>The segment file is created on the first spill and is scratch space: it extends memory for the life of
+ * the store and is not read back when a store is opened on it again. Records are never rewritten, so reads
+ * need no lock once the history that spilled them is locked. Appends hold a {@link ReentrantLock}, so a virtual
+ * thread waiting to spill parks instead of pinning its carrier thread.</p>
+ *
+ * <p>Record layout: length (int, whole record), offset of the previous record of the conversation (long, -1
+ * for none), position of the message in its owner's history (long), timestamp (long), text (UTF-8).
+ * A record never spans two segments.</p>
+ */
+public class ChatHistoryStore implements Closeable {
+    public static final String RING_PROPERTY = "chat.history.ring";
+    public static final String DIRECTORY_PROPERTY = "chat.history.dir";
+    static final int CHECKPOINT = 64;
+    private static final int HEADER = 28;
+    private static final ReentrantLock SHARED_LOCK = new ReentrantLock();
+    private static volatile ChatHistoryStore shared; // created by shared()
+
+    private final Path file;
+    private final int ringCapacity;
+    private final int segmentBytes;
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel channel;
+    private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private long end;
+    private long spilled;
+    private boolean closed;
+    private boolean temporary; // delete the file when the program exits
+
+    /**
+     * Constructor for ChatHistoryStore with segments of 16 MB.
+     * @param file The segment file; it is replaced on the first spill.
+     * @param ringCapacity The number of recent messages kept in memory per conversation.
+     */
+    public ChatHistoryStore(String file, int ringCapacity) {
+        this(file, ringCapacity, 16 << 20);
+    }
+
+    /**
+     * Constructor for ChatHistoryStore.
+     * @param file The segment file; it is replaced on the first spill.
+     * @param ringCapacity The number of recent messages kept in memory per conversation.
+     * @param segmentBytes The size of one mapped segment, which bounds the size of a message.
+     */
+    public ChatHistoryStore(String file, int ringCapacity, int segmentBytes) {
+        if (ringCapacity < 1) {
+            throw new IllegalArgumentException("Ring capacity must be at least 1: " + ringCapacity);
+        }
+        if (segmentBytes <= HEADER) {
+            throw new IllegalArgumentException("Segments must be larger than a record header: " + segmentBytes);
+        }
+        this.file = Paths.get(file);
+        this.ringCapacity = ringCapacity;
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Returns the store used by students: 256 recent messages per conversation, spilling to a temporary file
+     * that is deleted when the program exits. The ring capacity and the directory of the file can be set with
+     * the system properties {@value #RING_PROPERTY} and {@value #DIRECTORY_PROPERTY}, read on first use.
+     * A call that fails on a bad property leaves nothing behind, so a later call reads the properties again.
+     * @return The shared store.
+     * @throws IllegalArgumentException If {@value #RING_PROPERTY} is not a positive number.
+     */
+    public static ChatHistoryStore shared() {
+        ChatHistoryStore store = shared;
+        if (store == null) {
+            SHARED_LOCK.lock();
+            try {
+                store = shared;
+                if (store == null) {
+                    store = createShared();
+                    shared = store;
+                }
+            } finally {
+                SHARED_LOCK.unlock();
+            }
+        }
+        return store;
+    }
+
+    //creates the shared store from the system properties
+    private static ChatHistoryStore createShared() {
+        String ring = System.getProperty(RING_PROPERTY, "256").trim();
+        int capacity;
+        try {
+            capacity = Integer.parseInt(ring);
+        } catch (NumberFormatException e) {
+            capacity = 0;
+        }
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid " + RING_PROPERTY + ": " + ring
+                    + "; expected a positive number of messages.");
+        }
+        String directory = System.getProperty(DIRECTORY_PROPERTY, System.getProperty("java.io.tmpdir"));
+        String name = "chat-history-" + ProcessHandle.current().pid() + "-" + System.nanoTime() + ".seg";
+        ChatHistoryStore store = new ChatHistoryStore(Paths.get(directory, name).toString(), capacity);
+        store.temporary = true;
+        return store;
+    }
+
+    //creates an empty chat history kept in this store
+    public ChatHistory newHistory() {
+        return new ChatHistory(this, ringCapacity);
+    }
+
+    //number of messages kept in memory per conversation
+    public int getRingCapacity() {
+        return ringCapacity;
+    }
+
+    //number of messages spilled to the segment file
+    public long getSpilledCount() {
+        lock.lock();
+        try {
+            return spilled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //number of bytes used in the segment file
+    public long getFileBytes() {
+        lock.lock();
+        try {
+            return end;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the segment file. Histories kept in the store cannot spill or read spilled messages afterwards.
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closed = true;
+            segments = new MappedByteBuffer[0];
+            if (channel != null) {
+                channel.close();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //appends a record and returns its offset
+    long append(long previous, long sequence, long timestamp, String text) {
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Chat history store is closed.");
+            }
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            int length = HEADER + bytes.length;
+            if (length > segmentBytes) {
+                throw new IllegalArgumentException("Message of " + bytes.length + " bytes does not fit in a segment.");
+            }
+            if (end % segmentBytes + length > segmentBytes) {
+                end = (end / segmentBytes + 1) * segmentBytes;
+            }
+            long offset = end;
+            MappedByteBuffer buffer = segment((int) (offset / segmentBytes));
+            int position = (int) (offset % segmentBytes);
+            buffer.putInt(position, length);
+            buffer.putLong(position + 4, previous);
+            buffer.putLong(position + 12, sequence);
+            buffer.putLong(position + 20, timestamp);
+            buffer.put(position + HEADER, bytes);
+            end += length;
+            spilled++;
+            return offset;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //offset of the record before this one in its conversation, or -1
+    long previous(long offset) {
+        return buffer(offset).getLong((int) (offset % segmentBytes) + 4);
+    }
+
+    //position of the record's message in its owner's history
+    long sequence(long offset) {
+        return buffer(offset).getLong((int) (offset % segmentBytes) + 12);
+    }
+
+    ChatMessage read(long offset, String sender) {
+        MappedByteBuffer buffer = buffer(offset);
+        int position = (int) (offset % segmentBytes);
+        byte[] bytes = new byte[buffer.getInt(position) - HEADER];
+        buffer.get(position + HEADER, bytes);
+        return new ChatMessage(sender, buffer.getLong(position + 20), new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private MappedByteBuffer buffer(long offset) {
+        MappedByteBuffer[] mapped = segments;
+        int index = (int) (offset / segmentBytes);
+        if (index >= mapped.length) {
+            throw new IllegalStateException("Chat history store is closed.");
+        }
+        return mapped[index];
+    }
+
+    //maps segments up to the given one, creating the file on first use
+    private MappedByteBuffer segment(int index) {
+        MappedByteBuffer[] mapped = segments;
+        if (index < mapped.length) {
+            return mapped[index];
+        }
+        try {
+            if (channel == null) {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+                if (temporary) {
+                    file.toFile().deleteOnExit();
+                }
+            }
+            mapped = Arrays.copyOf(mapped, index + 1);
+            for (int i = segments.length; i <= index; i++) {
+                mapped[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * segmentBytes, segmentBytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map chat history segment " + index + " of " + file, e);
+        }
+        segments = mapped;
+        return mapped[index];
+    }
+
+}
@@ -0,0 +1,42 @@
+/**
+ * ChatMessage is one message of a student's chat history: who sent it, when, and its text.
+ * Messages are immutable.
+ */
+public class ChatMessage {
+    private final String sender;
+    private final long timestamp;
+    private final String text;
+
+    /**
+     * Constructor for ChatMessage.
+     * @param sender The name of the student who sent the message.
+     * @param timestamp When the message was added to the history, in milliseconds since the epoch.
+     * @param text The text of the message.
+     */
+    public ChatMessage(String sender, long timestamp, String text) {
+        this.sender = sender;
+        this.timestamp = timestamp;
+        this.text = text;
+    }
+
+    //name of the student who sent the message
+    public String getSender() {
+        return sender;
+    }
+
+    //when the message was added to the history, in milliseconds since the epoch
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    //text of the message
+    public String getText() {
+        return text;
+    }
+
+    //the message as it appears in the chat history, "sender: text"
+    @Override
+    public String toString() {
+        return sender + ": " + text;
+    }
+}
@@ -0,0 +1,222 @@
+import java.util.*;
+
+/**
+ * CompactStudentGraph is an immutable StudentGraph stored in compressed sparse row (CSR) form.
+ * Every student gets a dense int ID, and the neighbors of student {@code id} are the entries
+ * {@code offsets[id] .. offsets[id + 1] - 1} of the parallel {@code targets} and {@code weights} arrays.
+ * This costs 8 bytes per directed edge instead of an Edge object plus a list slot, and traversals
+ * walk contiguous arrays. getNeighbors still returns Edge objects, so existing code runs on it unchanged.
+ */
+public class CompactStudentGraph extends StudentGraph {
+    private final UniversityStudent[] students;
+    private final Map<UniversityStudent, Integer> ids;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final Set<UniversityStudent> nodes;
+
+    /**
+     * Constructor for CompactStudentGraph.
+     * Builds the CSR arrays directly from the students, without creating any Edge objects.
+     * Edges, weights and neighbor order are the same as {@link StudentGraph#StudentGraph(List)}.
+     * @param students List of UniversityStudent objects to be added to the graph, in ID order.
+     */
+    public CompactStudentGraph(List<UniversityStudent> students) {
+        int n = students.size();
+        this.students = students.toArray(new UniversityStudent[0]);
+        this.ids = indexOf(this.students);
+
+        //score each row once, keeping only j > i like the all-pairs loop
+        StudentGraph.CandidateIndex index = new StudentGraph.CandidateIndex(students);
+        int[][] rowTargets = new int[n][];
+        int[][] rowWeights = new int[n][];
+        int[] seen = new int[n];
+        int[] candidates = new int[Math.max(1, n)];
+        int[] scores = new int[Math.max(1, n)];
+        int[] degree = new int[n];
+        for (int i = 0; i < n; i++) {
+            int kept = index.scoreRow(i, seen, candidates, scores);
+            rowTargets[i] = Arrays.copyOf(candidates, kept);
+            rowWeights[i] = Arrays.copyOf(scores, kept);
+            degree[i] += kept;
+            for (int c = 0; c < kept; c++) {
+                degree[candidates[c]]++;
+            }
+        }
+
+        this.offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + degree[i];
+        }
+        this.targets = new int[offsets[n]];
+        this.weights = new int[offsets[n]];
+        //rows are added in ascending order, so each node sees its edges in the same order addEdge would give them
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < n; i++) {
+            for (int c = 0; c < rowTargets[i].length; c++) {
+                int j = rowTargets[i][c];
+                int w = rowWeights[i][c];
+                targets[fill[i]] = j;
+                weights[fill[i]++] = w;
+                targets[fill[j]] = i;
+                weights[fill[j]++] = w;
+            }
+            rowTargets[i] = null;
+            rowWeights[i] = null;
+        }
+        this.nodes = new NodeSet();
+    }
+
+    //creates a CSR graph from already built arrays
+    CompactStudentGraph(UniversityStudent[] students, int[] offsets, int[] targets, int[] weights) {
+        this.students = students;
+        this.ids = indexOf(students);
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.nodes = new NodeSet();
+    }
+
+    /**
+     * Returns a compact copy of the given graph, or the graph itself if it is already compact.
+     * IDs are assigned in the iteration order of {@link StudentGraph#getAllNodes()}.
+     * @param graph The graph to convert.
+     * @return The CompactStudentGraph with the same edges.
+     */
+    public static CompactStudentGraph of(StudentGraph graph) {
+        if (graph instanceof CompactStudentGraph) {
+            return (CompactStudentGraph) graph;
+        }
+        UniversityStudent[] students = graph.getAllNodes().toArray(new UniversityStudent[0]);
+        Map<UniversityStudent, Integer> ids = indexOf(students);
+        int[] offsets = new int[students.length + 1];
+        for (int i = 0; i < students.length; i++) {
+            offsets[i + 1] = offsets[i] + graph.getNeighbors(students[i]).size();
+        }
+        int[] targets = new int[offsets[students.length]];
+        int[] weights = new int[offsets[students.length]];
+        for (int i = 0; i < students.length; i++) {
+            int e = offsets[i];
+            for (Edge edge : graph.getNeighbors(students[i])) {
+                targets[e] = ids.get(edge.neighbor);
+                weights[e++] = edge.weight;
+            }
+        }
+        return new CompactStudentGraph(students, offsets, targets, weights);
+    }
+
+    private static Map<UniversityStudent, Integer> indexOf(UniversityStudent[] students) {
+        Map<UniversityStudent, Integer> ids = new HashMap<>(students.length * 2);
+        for (int i = 0; i < students.length; i++) {
+            ids.put(students[i], i);
+        }
+        return ids;
+    }
+
+    //number of students in the graph
+    public int size() {
+        return students.length;
+    }
+
+    //returns the dense ID of a student, or -1 if the student is not in the graph
+    public int idOf(UniversityStudent student) {
+        Integer id = ids.get(student);
+        return id == null ? -1 : id;
+    }
+
+    //returns the student with the given ID
+    public UniversityStudent studentAt(int id) {
+        return students[id];
+    }
+
+    //returns the number of neighbors of the student with the given ID
+    public int degree(int id) {
+        return offsets[id + 1] - offsets[id];
+    }
+
+    //raw CSR arrays for traversal code in this package, must not be modified
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+
+    int[] weights() {
+        return weights;
+    }
+
+    @Override
+    public void addEdge(UniversityStudent student1, UniversityStudent student2, int weight) {
+        throw new UnsupportedOperationException("CompactStudentGraph is immutable.");
+    }
+
+    @Override
+    public void addStudent(UniversityStudent student) {
+        throw new UnsupportedOperationException("CompactStudentGraph is immutable.");
+    }
+
+    @Override
+    public void removeStudent(UniversityStudent student) {
+        throw new UnsupportedOperationException("CompactStudentGraph is immutable.");
+    }
+
+    @Override
+    public void updateStudent(UniversityStudent student) {
+        throw new UnsupportedOperationException("CompactStudentGraph is immutable.");
+    }
+
+    @Override
+    public void setRoommate(UniversityStudent student, UniversityStudent roommate) {
+        throw new UnsupportedOperationException("CompactStudentGraph is immutable.");
+    }
+
+    //returns a read-only view of the edges of a student, or null if the student is not in the graph
+    @Override
+    public List<Edge> getNeighbors(UniversityStudent student) {
+        int id = idOf(student);
+        if (id < 0) {
+            return null;
+        }
+        int from = offsets[id];
+        int to = offsets[id + 1];
+        return new AbstractList<Edge>() {
+            @Override
+            public Edge get(int index) {
+                if (index < 0 || index >= to - from) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (to - from));
+                }
+                return new Edge(students[targets[from + index]], weights[from + index]);
+            }
+
+            @Override
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+
+    @Override
+    public Set<UniversityStudent> getAllNodes() {
+        return nodes;
+    }
+
+    //read-only set view over the ID table
+    private class NodeSet extends AbstractSet<UniversityStudent> {
+        @Override
+        public Iterator<UniversityStudent> iterator() {
+            return Collections.unmodifiableList(Arrays.asList(students)).iterator();
+        }
+
+        @Override
+        public int size() {
+            return students.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return ids.containsKey(o);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.*;
+
+/**
+ * CompanyIndex maps every company that appears in a student's previous internships to the set of
+ * students who interned there. Company names are case-folded the same way as
+ * {@link String#equalsIgnoreCase(String)} and interned to dense int IDs, and each company keeps the sorted
+ * student IDs of a CompactStudentGraph who interned there, so the index takes memory in proportion to the
+ * internships listed. A company that more than one student in 32 interned at also gets a BitSet, no larger than
+ * its ID array, so "did this student intern there" is one bit test for it and a binary search for the others.
+ */
+public class CompanyIndex {
+    private final Map<String, Integer> companyIds = new HashMap<>();
+    private final List<int[]> studentsByCompany = new ArrayList<>();
+    private final List<BitSet> denseCompanies = new ArrayList<>(); // null for a company with few interns
+
+    /**
+     * Constructor for CompanyIndex.
+     * @param graph The graph whose student IDs the index refers to.
+     */
+    public CompanyIndex(CompactStudentGraph graph) {
+        List<int[]> ids = new ArrayList<>();
+        int[] counts = new int[16];
+        for (int id = 0; id < graph.size(); id++) {
+            for (String internship : graph.studentAt(id).previousInternships) {
+                String key = fold(internship);
+                Integer company = companyIds.get(key);
+                if (company == null) {
+                    company = ids.size();
+                    companyIds.put(key, company);
+                    ids.add(new int[2]);
+                    if (company == counts.length) {
+                        counts = Arrays.copyOf(counts, company * 2);
+                    }
+                }
+                int[] students = ids.get(company);
+                int count = counts[company];
+                if (count > 0 && students[count - 1] == id) {
+                    continue; // the same company listed twice by one student
+                }
+                if (count == students.length) {
+                    students = Arrays.copyOf(students, count * 2);
+                    ids.set(company, students);
+                }
+                students[count] = id;
+                counts[company] = count + 1;
+            }
+        }
+        for (int company = 0; company < ids.size(); company++) {
+            int[] students = Arrays.copyOf(ids.get(company), counts[company]);
+            studentsByCompany.add(students);
+            BitSet dense = null;
+            if ((long) students.length * 32 > graph.size()) {
+                dense = new BitSet(students[students.length - 1] + 1);
+                for (int id : students) {
+                    dense.set(id);
+                }
+            }
+            denseCompanies.add(dense);
+        }
+    }
+
+    //returns the ID of a company, or -1 if no student interned there or company is null
+    public int companyId(String company) {
+        if (company == null) {
+            return -1;
+        }
+        Integer id = companyIds.get(fold(company));
+        return id == null ? -1 : id;
+    }
+
+    //returns true if the student with the given ID interned at the company with the given ID
+    public boolean internedAt(int studentId, int companyId) {
+        BitSet dense = denseCompanies.get(companyId);
+        if (dense != null) {
+            return dense.get(studentId);
+        }
+        return Arrays.binarySearch(studentsByCompany.get(companyId), studentId) >= 0;
+    }
+
+    //returns the IDs of all students who interned at the company in ascending order, must not be modified
+    int[] studentsAt(int companyId) {
+        return studentsByCompany.get(companyId);
+    }
+
+    //number of distinct companies
+    public int size() {
+        return studentsByCompany.size();
+    }
+
+    //folds the case of a company name so that names equal under equalsIgnoreCase share a key
+    static String fold(String company) {
+        char[] chars = company.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
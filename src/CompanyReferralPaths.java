@@ -0,0 +1,81 @@
+import java.util.*;
+
+/**
+ * CompanyReferralPaths holds the best referral path from every student to a target company,
+ * as computed by {@link ReferralPathFinder#findReferralPathsToCompany(String)}.
+ * For each student it stores the total path cost and the next hop towards the nearest student
+ * who interned at the company, in arrays indexed by the student IDs of a CompactStudentGraph.
+ * Instances are immutable and safe to share between threads.
+ */
+public class CompanyReferralPaths {
+    private final CompactStudentGraph graph;
+    private final String company;
+    private final double[] distance;
+    private final int[] nextHop;
+
+    CompanyReferralPaths(CompactStudentGraph graph, String company, double[] distance, int[] nextHop) {
+        this.graph = graph;
+        this.company = company;
+        this.distance = distance;
+        this.nextHop = nextHop;
+    }
+
+    //distance and next hop by student ID, for search code in this package
+    double distance(int id) {
+        return distance[id];
+    }
+
+    int nextHop(int id) {
+        return nextHop[id];
+    }
+
+    //returns the target company
+    public String getCompany() {
+        return company;
+    }
+
+    //returns the cost of the best referral path from the student, or infinity if there is none
+    public double distanceFrom(UniversityStudent student) {
+        int id = graph.idOf(student);
+        return id < 0 ? Double.POSITIVE_INFINITY : distance[id];
+    }
+
+    //returns true if the student has a referral path to the company
+    public boolean hasPath(UniversityStudent student) {
+        return distanceFrom(student) != Double.POSITIVE_INFINITY;
+    }
+
+    //returns the next student on the best referral path, or null if the student interned there or has no path
+    public UniversityStudent nextHop(UniversityStudent student) {
+        int id = graph.idOf(student);
+        return id < 0 || nextHop[id] < 0 ? null : graph.studentAt(nextHop[id]);
+    }
+
+    /**
+     * Returns the best referral path from the student, in the same form as findReferralPath.
+     * @param student The starting student.
+     * @return The students from the starting student to one who interned at the company, or an empty list.
+     */
+    public List<UniversityStudent> pathFrom(UniversityStudent student) {
+        List<UniversityStudent> path = new ArrayList<>();
+        int id = graph.idOf(student);
+        if (id < 0 || distance[id] == Double.POSITIVE_INFINITY) {
+            return path;
+        }
+        for (int cur = id; cur >= 0; cur = nextHop[cur]) {
+            path.add(graph.studentAt(cur));
+        }
+        return path;
+    }
+
+    //returns the number of students with a referral path to the company
+    public int reachableCount() {
+        int count = 0;
+        for (double d : distance) {
+            if (d != Double.POSITIVE_INFINITY) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -1,5 +1,8 @@
 import java.io.*;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * DataParser class to read and
@@ -53,4 +56,52 @@ public class DataParser {
         reader.close(); // Close the reader
         return students; // Return the list of students
     }
+
+    /**
+     * Streams the students of a file without loading the whole file or the whole list into memory.
+     * The file is read as UTF-8 bytes through a StudentRecordReader; close the stream to release the file.
+     * @param filename The file to read.
+     * @return A sequential stream of the students in file order.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static Stream<UniversityStudent> streamStudents(String filename) throws IOException {
+        StudentRecordReader reader = new StudentRecordReader(filename);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * Passes every student of a file to the given callback, in file order, with bounded memory.
+     * @param filename The file to read.
+     * @param action The callback to run for each student.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void forEachStudent(String filename, Consumer<UniversityStudent> action) throws IOException {
+        try (StudentRecordReader reader = new StudentRecordReader(filename)) {
+            while (reader.hasNext()) {
+                action.accept(reader.next());
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Parses a student file on several threads and returns the students in file order.
+     * Errors carry the same messages as {@link #parseStudents(String)}, with the line number of the
+     * invalid entry added, and the first invalid entry in the file is always the one reported.
+     * @param filename The file to read.
+     * @param parallelism The number of threads to use.
+     * @return The list of students.
+     * @throws IOException If the file cannot be read.
+     */
+    public static List<UniversityStudent> parseStudentsParallel(String filename, int parallelism) throws IOException {
+        return new ParallelStudentParser(filename, parallelism).parse();
+    }
 }
\ No newline at end of file
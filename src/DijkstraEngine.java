@@ -0,0 +1,145 @@
+import java.util.*;
+
+/**
+ * DijkstraEngine runs Dijkstra's algorithm over a CompactStudentGraph using the referral cost model,
+ * where an edge of connection strength w costs 1/w.
+ * All scratch state lives in int-indexed primitive arrays that are allocated once and reused across
+ * queries: an epoch counter marks which entries belong to the current query, so starting a new query
+ * is O(1) and the cost of a query only depends on the part of the graph it explores.
+ * An optional potential turns the search into A*: nodes are ordered by distance plus potential,
+ * which must be a consistent lower bound on the remaining distance for the result to stay exact.
+ * An engine is not thread-safe; use one per thread.
+ */
+class DijkstraEngine {
+    //consistent lower bound on the remaining distance from a node, used to order the heap
+    interface Potential {
+        double at(int id);
+    }
+
+    //decides whether the search may follow an edge
+    interface EdgeFilter {
+        boolean allows(int from, int to);
+    }
+
+    private final CompactStudentGraph graph;
+    private final double[] dist;
+    private final int[] prev;
+    private final int[] reachedEpoch;
+    private final int[] settledEpoch;
+    private final IndexedMinHeap heap;
+    private Potential potential;
+    private EdgeFilter filter;
+    private int epoch;
+    private int settledCount;
+
+    DijkstraEngine(CompactStudentGraph graph) {
+        int n = graph.size();
+        this.graph = graph;
+        this.dist = new double[n];
+        this.prev = new int[n];
+        this.reachedEpoch = new int[n];
+        this.settledEpoch = new int[n];
+        this.heap = new IndexedMinHeap(n);
+    }
+
+    CompactStudentGraph graph() {
+        return graph;
+    }
+
+    //starts a new query, forgetting everything reached by the previous one
+    void reset() {
+        heap.clear();
+        settledCount = 0;
+        if (++epoch == Integer.MAX_VALUE) {
+            //wrap around rarely: clear the stamps so old entries can never look current
+            Arrays.fill(reachedEpoch, 0);
+            Arrays.fill(settledEpoch, 0);
+            epoch = 1;
+        }
+    }
+
+    //sets the potential used by the following queries, or null for plain Dijkstra
+    void setPotential(Potential potential) {
+        this.potential = potential;
+    }
+
+    //sets the filter used by the following queries, or null to follow every edge
+    void setEdgeFilter(EdgeFilter filter) {
+        this.filter = filter;
+    }
+
+    //adds a source of the search at the given initial distance
+    void seed(int id, double distance) {
+        reach(id, distance, -1);
+    }
+
+    boolean hasNext() {
+        return !heap.isEmpty();
+    }
+
+    //smallest heap key (distance plus potential) of the unsettled nodes, or infinity if there are none
+    double minKey() {
+        return heap.isEmpty() ? Double.POSITIVE_INFINITY : heap.peekKey();
+    }
+
+    //settles the closest unsettled node, relaxes its edges and returns its ID
+    int settleNext() {
+        int u = heap.poll();
+        settledEpoch[u] = epoch;
+        settledCount++;
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights();
+        double du = dist[u];
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+            int v = targets[e];
+            if (settledEpoch[v] != epoch && (filter == null || filter.allows(u, v))) {
+                reach(v, du + 1.0 / weights[e], u);
+            }
+        }
+        return u;
+    }
+
+    private void reach(int v, double distance, int from) {
+        if (reachedEpoch[v] != epoch) {
+            reachedEpoch[v] = epoch;
+        } else if (distance >= dist[v]) {
+            return;
+        }
+        dist[v] = distance;
+        prev[v] = from;
+        heap.insertOrDecrease(v, potential == null ? distance : distance + potential.at(v));
+    }
+
+    boolean isReached(int id) {
+        return reachedEpoch[id] == epoch;
+    }
+
+    boolean isSettled(int id) {
+        return settledEpoch[id] == epoch;
+    }
+
+    //distance found for the node in the current query, or infinity if it was not reached
+    double distance(int id) {
+        return reachedEpoch[id] == epoch ? dist[id] : Double.POSITIVE_INFINITY;
+    }
+
+    //node the given node was reached from, or -1 for sources and unreached nodes
+    int predecessor(int id) {
+        return reachedEpoch[id] == epoch ? prev[id] : -1;
+    }
+
+    int settledCount() {
+        return settledCount;
+    }
+
+    //walks the predecessors back from the given node and returns the students from the source to it
+    List<UniversityStudent> pathTo(int id) {
+        List<UniversityStudent> path = new ArrayList<>();
+        for (int cur = id; cur >= 0; cur = predecessor(cur)) {
+            path.add(graph.studentAt(cur));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
@@ -0,0 +1,231 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * FriendRequestService records friend requests between students without a global lock.
+ * Students are spread over a fixed array of lock stripes; a request takes the stripes of its sender and its
+ * receiver, in stripe order, so requests between other students go ahead in parallel. The pending requests
+ * and friends are kept by the students themselves, so a request added with
+ * {@link UniversityStudent#addFriendRequest(String)}, from a data file or a store, counts as pending too.
+ *
+ * <p>Sending the same request twice has no effect. A request to a student who already asked the sender
+ * accepts theirs instead: the pending request is removed, both become friends, and if the service has a graph
+ * an edge is added between them. Graph edits are serialized by a lock of their own, after the stripes are
+ * released. A service created on a {@link StudentNetworkStore} hands every request to the store instead, which
+ * logs it so friendships survive a restart.</p>
+ *
+ * <p>The stripes are {@link ReentrantLock}s rather than monitors, so a virtual thread waiting for one parks
+ * instead of pinning its carrier thread.</p>
+ */
+public class FriendRequestService {
+    /**
+     * Outcome of a friend request.
+     */
+    public enum Outcome {
+        SENT,
+        DUPLICATE,
+        ALREADY_FRIENDS,
+        ACCEPTED
+    }
+
+    private final ReentrantLock[] stripes;
+    private final StudentGraph graph;
+    private final StudentNetworkStore store;
+    private final ReentrantLock graphLock = new ReentrantLock();
+    private final int friendWeight;
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+
+    /**
+     * Constructor for FriendRequestService that does not add graph edges.
+     */
+    public FriendRequestService() {
+        this(null, 1, 64);
+    }
+
+    /**
+     * Constructor for FriendRequestService that adds an edge of weight 1 to the graph for every accepted request.
+     * @param graph The graph holding the students.
+     */
+    public FriendRequestService(StudentGraph graph) {
+        this(graph, 1, 64);
+    }
+
+    /**
+     * Constructor for FriendRequestService.
+     * @param graph The graph to add an edge to for every accepted request, or null.
+     * @param friendWeight The weight of the edge added between new friends.
+     * @param stripes The number of lock stripes, rounded up to a power of two.
+     */
+    public FriendRequestService(StudentGraph graph, int friendWeight, int stripes) {
+        this(graph, null, friendWeight, stripes);
+    }
+
+    /**
+     * Constructor for FriendRequestService that records every request in a store, adding an edge of weight 1
+     * to the store's graph for every accepted request.
+     * @param store The store holding the students.
+     */
+    public FriendRequestService(StudentNetworkStore store) {
+        this(store.getGraph(), store, 1, 1);
+    }
+
+    private FriendRequestService(StudentGraph graph, StudentNetworkStore store, int friendWeight, int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("At least one stripe is needed: " + stripes);
+        }
+        int count = Integer.highestOneBit(stripes);
+        if (count < stripes) {
+            count <<= 1;
+        }
+        this.stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.graph = graph;
+        this.store = store;
+        this.friendWeight = friendWeight;
+    }
+
+    /**
+     * Returns the service used by {@link FriendRequestThread} by default. It does not add graph edges, since it
+     * knows no graph: to add an edge for every accepted request, create a service with
+     * {@link #FriendRequestService(StudentGraph)} and pass it to
+     * {@link FriendRequestThread#FriendRequestThread(UniversityStudent, UniversityStudent, FriendRequestService)}
+     * or {@link AdmissionGateway}.
+     * @return The shared service.
+     */
+    public static FriendRequestService shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Sends a friend request, or accepts the receiver's request to the sender if there is one.
+     * @param sender The student sending the request.
+     * @param receiver The student receiving it.
+     * @return What the request did.
+     * @throws UncheckedIOException If the service writes to a store and the request cannot be logged.
+     */
+    public Outcome send(UniversityStudent sender, UniversityStudent receiver) {
+        if (sender == receiver) {
+            throw new IllegalArgumentException("A student cannot befriend themselves: " + sender.getName());
+        }
+        if (store != null) {
+            Outcome outcome;
+            try {
+                outcome = store.sendFriendRequest(sender, receiver, friendWeight);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot log the friend request from " + sender.getName() + " to "
+                        + receiver.getName(), e);
+            }
+            count(outcome);
+            return outcome;
+        }
+        int a = stripeOf(sender);
+        int b = stripeOf(receiver);
+        ReentrantLock first = stripes[Math.min(a, b)];
+        ReentrantLock second = stripes[Math.max(a, b)];
+        Outcome outcome;
+        first.lock();
+        try {
+            second.lock(); // the same lock when both students share a stripe
+            try {
+                outcome = outcomeOf(sender, receiver);
+                apply(sender, receiver, outcome);
+            } finally {
+                second.unlock();
+            }
+        } finally {
+            first.unlock();
+        }
+        if (outcome == Outcome.ACCEPTED && graph != null) {
+            graphLock.lock();
+            try {
+                graph.addEdge(sender, receiver, friendWeight);
+            } finally {
+                graphLock.unlock();
+            }
+        }
+        count(outcome);
+        return outcome;
+    }
+
+    /**
+     * Returns whether two students are friends.
+     * @param student1 The first student.
+     * @param student2 The second student.
+     * @return True if one accepted the other's request.
+     */
+    public boolean areFriends(UniversityStudent student1, UniversityStudent student2) {
+        return student1.isFriendOf(student2.getName());
+    }
+
+    //number of requests recorded as pending
+    public long getSentCount() {
+        return sent.sum();
+    }
+
+    //number of requests ignored because they were pending already or the students were friends
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    //number of requests that accepted a request the other way
+    public long getAcceptedCount() {
+        return accepted.sum();
+    }
+
+    private void count(Outcome outcome) {
+        switch (outcome) {
+            case SENT:
+                sent.increment();
+                break;
+            case ACCEPTED:
+                accepted.increment();
+                break;
+            default:
+                duplicates.increment();
+                break;
+        }
+    }
+
+    //what a request would do, given the pending requests and friends of both students; nothing is changed
+    static Outcome outcomeOf(UniversityStudent sender, UniversityStudent receiver) {
+        if (receiver.isFriendOf(sender.getName())) {
+            return Outcome.ALREADY_FRIENDS;
+        }
+        if (sender.hasFriendRequestFrom(receiver.getName())) {
+            return Outcome.ACCEPTED;
+        }
+        if (receiver.hasFriendRequestFrom(sender.getName())) {
+            return Outcome.DUPLICATE;
+        }
+        return Outcome.SENT;
+    }
+
+    //applies the outcome of a request to both students; the caller keeps other requests between them out
+    static void apply(UniversityStudent sender, UniversityStudent receiver, Outcome outcome) {
+        if (outcome == Outcome.ACCEPTED) {
+            //the receiver asked first; accepting also settles a request of the sender still pending the other way
+            sender.removeFriendRequest(receiver.getName());
+            receiver.removeFriendRequest(sender.getName());
+            sender.addFriend(receiver.getName());
+            receiver.addFriend(sender.getName());
+        } else if (outcome == Outcome.SENT) {
+            receiver.addFriendRequest(sender.getName());
+        }
+    }
+
+    private int stripeOf(UniversityStudent student) {
+        int h = System.identityHashCode(student);
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    //created on first use of shared()
+    private static class Shared {
+        static final FriendRequestService INSTANCE = new FriendRequestService();
+    }
+}
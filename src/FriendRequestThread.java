@@ -1,37 +1,48 @@
-import java.util.concurrent.Semaphore;
-
 /**
  * FriendRequestThread class implements Runnable to handle friend requests between students.
- * It uses a semaphore to ensure thread-safe operations when sending friend requests.
+ * The request goes through a {@link FriendRequestService}, which only locks the stripes of the two students
+ * involved, ignores repeated requests and accepts a request the other way instead of sending a new one.
  */
 public class FriendRequestThread implements Runnable {
     private UniversityStudent sender;
     private UniversityStudent receiver;
-    //static semaphore to ensure thread-safe friend request operation
-    private static final Semaphore semaphore = new Semaphore(1);
+    private FriendRequestService service;
     /**
-     * Constructor for FriendRequestThread.
+     * Constructor for FriendRequestThread, using the shared service, which adds no graph edges.
      * @param sender The student sending the friend request.
      * @param receiver The student receiving the friend request.
      */
     public FriendRequestThread(UniversityStudent sender, UniversityStudent receiver) {
-        // Constructor
+        this(sender, receiver, FriendRequestService.shared());
+    }
+
+    /**
+     * Constructor for FriendRequestThread.
+     * @param sender The student sending the friend request.
+     * @param receiver The student receiving the friend request.
+     * @param service The service recording the request.
+     */
+    public FriendRequestThread(UniversityStudent sender, UniversityStudent receiver, FriendRequestService service) {
         this.sender = sender;
         this.receiver = receiver;
+        this.service = service;
     }
 
     @Override
     public void run() {
-        // Method signature only
-        try {
-            semaphore.acquire();
-            System.out.println("FriendRequest (Thread-Safe): " + sender.name + " sent a friend request to " + receiver.name);
-        } catch (InterruptedException e) {
-            // Handle exception
-            Thread.currentThread().interrupt(); // Restore interrupted status
-            System.err.println("Thread interrupted: " + e.getMessage());
-        } finally {
-            semaphore.release();
+        switch (service.send(sender, receiver)) {
+            case SENT:
+                System.out.println("FriendRequest (Thread-Safe): " + sender.name + " sent a friend request to " + receiver.name);
+                break;
+            case DUPLICATE:
+                System.out.println("FriendRequest (Thread-Safe): " + sender.name + " already sent a friend request to " + receiver.name);
+                break;
+            case ALREADY_FRIENDS:
+                System.out.println("FriendRequest (Thread-Safe): " + sender.name + " and " + receiver.name + " are already friends");
+                break;
+            case ACCEPTED:
+                System.out.println("FriendRequest (Thread-Safe): " + sender.name + " accepted the friend request from " + receiver.name);
+                break;
         }
     }
-}
\ No newline at end of file
+}
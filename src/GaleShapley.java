@@ -1,101 +1,134 @@
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
 
 /**
- * GaleShapley class implements the Gale-Shapley algorithm for roommate assignment.
- * It takes a list of UniversityStudent objects and assigns them roommates based on their preferences.
+ * GaleShapley class assigns roommates to a list of UniversityStudent objects based on their preferences.
+ * Roommates are a one-sided matching problem, so the assignment is computed with Irving's stable roommates
+ * algorithm (see {@link StableRoommates}) rather than a two-sided proposal loop. If the preferences admit no
+ * stable matching, students are paired with a proposal pass instead.
+ *
+ * <p>{@link #match(List)} only reads the students and returns an immutable {@link Matching}, so several
+ * matchings can run at the same time over the same list; {@link #assignRoommates(List)} applies and prints
+ * one. {@link #matchSharded(List, Function, int)} matches each shard of a cohort on its own, in parallel.</p>
  */
 public class GaleShapley {
+    //shard key for students who may only room with the same gender and year
+    public static final Function<UniversityStudent, Object> GENDER_AND_YEAR =
+            s -> Arrays.asList(s.getGender(), s.getYear());
+
     public static void assignRoommates(List<UniversityStudent> students) {
-        //map to hold final pairings, each student is assigned to a roommate
-        Map<UniversityStudent, UniversityStudent> roommatepairs = new HashMap<>();
-        //map to track which proposal each student has made
-        Map<UniversityStudent, Integer> nextPropsalIndex = new HashMap<>();
-        //map to quickly look up student by name
-        Map<String, UniversityStudent> nameToStudent = new HashMap<>();
+        Matching matching = match(students);
+        matching.apply();
+        MatchingReporter.print(matching, System.out);
+    }
+
+    /**
+     * Computes a roommate matching from the students' own preferences, without changing any student.
+     * @param students The students to match.
+     * @return The matching.
+     */
+    public static Matching match(List<UniversityStudent> students) {
+        return match(students, s -> s.roommatePreferences);
+    }
+
+    /**
+     * Computes a what-if roommate matching from alternative preferences, without changing any student.
+     * @param students The students to match.
+     * @param preferences Returns the roommate preferences to use for a student, as names, best first.
+     * @return The matching.
+     */
+    public static Matching match(List<UniversityStudent> students,
+                                 Function<UniversityStudent, List<String>> preferences) {
+        StableRoommates engine = new StableRoommates(students, preferences);
+        int[] partner = engine.solve();
+        boolean stable = partner != null;
+        if (!stable) {
+            partner = engine.proposalMatching();
+        }
+        return new Matching(students, partner, stable);
+    }
+
+    /**
+     * Partitions the students by a shard key and matches every shard independently on a thread pool.
+     * Students can only be paired within their shard; preferences for students in other shards are ignored.
+     * Shards are submitted largest first, so the slowest shard starts as early as possible.
+     * @param students The students to match.
+     * @param shardKey Returns the shard of a student, for example {@link #GENDER_AND_YEAR}.
+     * @param parallelism Number of worker threads to use.
+     * @return The merged matching, with the size, outcome and latency of every shard.
+     */
+    public static ShardedMatching matchSharded(List<UniversityStudent> students,
+                                               Function<UniversityStudent, ?> shardKey, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        long start = System.nanoTime();
+        Map<Object, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < students.size(); i++) {
+            groups.computeIfAbsent(shardKey.apply(students.get(i)), k -> new ArrayList<>()).add(i);
+        }
+        List<Object> keys = new ArrayList<>(groups.keySet());
+        List<Integer> order = new ArrayList<>();
+        for (int k = 0; k < keys.size(); k++) {
+            order.add(k);
+        }
+        order.sort((a, b) -> Integer.compare(groups.get(keys.get(b)).size(), groups.get(keys.get(a)).size()));
 
-        for (UniversityStudent s : students) {
-            nameToStudent.put(s.name(), s);
-            nextPropsalIndex.put(s, 0); //initialize to 0, no proposals made yet
+        int[] partner = new int[students.size()];
+        ShardedMatching.Shard[] shards = new ShardedMatching.Shard[keys.size()];
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, keys.size())));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int k : order) {
+                Object key = keys.get(k);
+                List<Integer> members = groups.get(key);
+                futures.add(executor.submit(() -> {
+                    List<UniversityStudent> shard = new ArrayList<>(members.size());
+                    for (int i : members) {
+                        shard.add(students.get(i));
+                    }
+                    long shardStart = System.nanoTime();
+                    Matching matching = match(shard);
+                    long nanos = System.nanoTime() - shardStart;
+                    //shards own disjoint positions of partner, so no locking is needed
+                    for (int i = 0; i < members.size(); i++) {
+                        int p = matching.partnerOf(i);
+                        partner[members.get(i)] = p < 0 ? -1 : members.get(p);
+                    }
+                    shards[k] = new ShardedMatching.Shard(key, members.size(), matching.pairCount(),
+                            matching.isStable(), nanos);
+                }));
+            }
+            for (Future<?> future : futures) {
+                join(future);
+            }
+        } finally {
+            executor.shutdown();
         }
+        boolean stable = true;
+        for (ShardedMatching.Shard shard : shards) {
+            stable &= shard.isStable();
+        }
+        return new ShardedMatching(new Matching(students, partner, stable), Arrays.asList(shards),
+                System.nanoTime() - start);
+    }
 
-         //queue for students who are free and need to propose
-         Queue<UniversityStudent> freeStudents = new LinkedList<>(students);
-         for (UniversityStudent s: students) {
-             if(!s.roommatePreferences.isEmpty()){
-                 freeStudents.offer(s); //add to queue if they have preferences
-             }
-         }
- 
-         while(!freeStudents.isEmpty()){
-             UniversityStudent s = freeStudents.poll(); //get the next free student
-             //skip if s is alr paired
-             if(s.getRoommate() != null){
-                 continue;
-             }//regular gale-shapley algorithm: checks to see if there is one roomate that is preferred over the other, no such case will be tested
-             
-             int index = nextPropsalIndex.get(s); //get the index of the next proposal
-             if(index >= s.roommatePreferences.size()){
-                 continue; //s doesn't have any more preferences to propose to
-             }
- 
-             String preferredName = s.roommatePreferences.get(index); //get the name of the preferred student
-             nextPropsalIndex.put(s, index + 1); //increment the index for the next proposal
-             UniversityStudent t = nameToStudent.get(preferredName); 
-             if (t == null) {
-                 //preffered student not found, try next option
-                 if(nextPropsalIndex.get(s) < s.roommatePreferences.size()){
-                     freeStudents.offer(s); //add back to queue if they have more preferences
-                 }
-                 continue; //skip to the next student
-             }
-             if(!t.roommatePreferences.contains(s.name())){
-                 if(nextPropsalIndex.get(s) < s.roommatePreferences.size()){
-                     freeStudents.offer(s); //add back to queue if they have more preferences
-                 }
-                 continue; //skip to the next student    
-             }
-             
-             //if t is free, pair them up
-             if(t.getRoommate() == null){
-                 roommatepairs.put(s, t); //pair them up
-                 roommatepairs.put(t, s); //pair them up in the opposite direction as well
-                 s.setRoommate(t); //set the roommate for s
-                 t.setRoommate(s); //set the roommate for t
-             }
-             else{
-                 UniversityStudent currentRoommate = t.getRoommate();
-                 int currentIndex = t.roommatePreferences.indexOf(currentRoommate.name());
-                 int newIndex = t.roommatePreferences.indexOf(s.name());
-                 if(newIndex < currentIndex){
-                     //t prefers s over their current roommate, so swap them
-                     roommatepairs.put(t, s);
-                     roommatepairs.put(s, t);
-                     roommatepairs.remove(currentRoommate); // Remove current partner from the pairs
-                     freeStudents.offer(currentRoommate); // Add current partner back to the queue
-                     currentRoommate.setRoommate(null); // Set current partner's roommate to null
-                     s.setRoommate(t); // Set s's roommate to t
-                     t.setRoommate(s); // Set t's roommate to s
-                 }
-                 else{
-                     //t prefers their current roommate, so reject s
-                     if(nextPropsalIndex.get(s) < s.roommatePreferences.size()){
-                         freeStudents.offer(s); //add back to queue if they have more preferences
-                     }
-                 }
-             }
-         }
- 
-         // Print the final pairings
-         System.out.println("\nRoommate Pairings (Gale-Shapley):");
-         Set<UniversityStudent> printed = new HashSet<>();
-         for (UniversityStudent s: roommatepairs.keySet()) {
-             UniversityStudent roommate = roommatepairs.get(s);
-             if (!printed.contains(s) && !printed.contains(roommate)) {
-                 System.out.println(s.name() + " paired with " + roommate.name());
-                 printed.add(s);
-                 printed.add(roommate);
-             }
-         }
-     }
- }
- 
\ No newline at end of file
+    private static void join(Future<?> future) {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while matching roommates.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.Arrays;
+
+/**
+ * IndexedMinHeap is a binary min-heap of int IDs keyed by primitive doubles.
+ * Every ID in {@code [0, capacity)} has a fixed slot in the position table, so decrease-key is
+ * O(log n) and no boxing happens on any operation. Clearing only touches the IDs still in the heap.
+ */
+class IndexedMinHeap {
+    private final int[] heap;
+    private final int[] pos;
+    private final double[] keys;
+    private int size;
+
+    IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        pos = new int[capacity];
+        keys = new double[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int id) {
+        return pos[id] >= 0;
+    }
+
+    //key of the smallest entry, the heap must not be empty
+    double peekKey() {
+        return keys[heap[0]];
+    }
+
+    //inserts the ID, or lowers its key if it is already present with a larger one
+    void insertOrDecrease(int id, double key) {
+        int i = pos[id];
+        if (i < 0) {
+            i = size++;
+            heap[i] = id;
+            pos[id] = i;
+        } else if (key >= keys[id]) {
+            return;
+        }
+        keys[id] = key;
+        siftUp(i);
+    }
+
+    //removes and returns the ID with the smallest key
+    int poll() {
+        int min = heap[0];
+        pos[min] = -1;
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            pos[last] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            pos[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        int id = heap[i];
+        double key = keys[id];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (keys[p] <= key) {
+                break;
+            }
+            heap[i] = p;
+            pos[p] = i;
+            i = parent;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+
+    private void siftDown(int i) {
+        int id = heap[i];
+        double key = keys[id];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[heap[child]]) {
+                child = right;
+            }
+            int c = heap[child];
+            if (key <= keys[c]) {
+                break;
+            }
+            heap[i] = c;
+            pos[c] = i;
+            i = child;
+        }
+        heap[i] = id;
+        pos[id] = i;
+    }
+}
@@ -0,0 +1,206 @@
+import java.util.*;
+
+/**
+ * KShortestReferralPaths implements Yen's k-shortest simple paths algorithm for referral queries,
+ * where a path ends at the first student on it who interned at the target company.
+ * The exact distance to the company from every student, found by one backward search, serves as
+ * a consistent A* heuristic for every spur search: removing nodes and edges can only make the
+ * remaining distance longer, so the heuristic stays a lower bound and the spur paths stay exact.
+ * Only the best k - |found| candidates are kept, which bounds memory at O(k) paths.
+ */
+class KShortestReferralPaths {
+    private final DijkstraEngine engine;
+    private final CompactStudentGraph graph;
+    private final CompanyReferralPaths toCompany;
+    private final CompanyIndex companies;
+    private final int company;
+    private final int[] bannedStamp;
+    private int stamp;
+
+    KShortestReferralPaths(DijkstraEngine engine, CompanyReferralPaths toCompany, CompanyIndex companies,
+                           int company) {
+        this.engine = engine;
+        this.graph = engine.graph();
+        this.toCompany = toCompany;
+        this.companies = companies;
+        this.company = company;
+        this.bannedStamp = new int[graph.size()];
+    }
+
+    List<ReferralRoute> find(int source, int k, int firstSettled) {
+        List<ReferralRoute> routes = new ArrayList<>();
+        if (toCompany.distance(source) == Double.POSITIVE_INFINITY) {
+            return routes;
+        }
+        List<Candidate> accepted = new ArrayList<>();
+        TreeSet<Candidate> candidates = new TreeSet<>();
+        Set<Candidate> known = new HashSet<>();
+        long sequence = 0;
+
+        //the first path follows the next hops of the backward search
+        IntList first = new IntList();
+        for (int cur = source; cur >= 0; cur = toCompany.nextHop(cur)) {
+            first.add(cur);
+        }
+        int[] firstNodes = first.toArray();
+        Candidate best = new Candidate(firstNodes, costsOf(firstNodes, new double[] {0.0}, 0), sequence++, firstSettled);
+        known.add(best);
+        engine.setPotential(toCompany::distance);
+
+        while (best != null) {
+            accepted.add(best);
+            routes.add(best.toRoute(graph));
+            if (accepted.size() == k) {
+                break;
+            }
+            int[] path = best.nodes;
+            for (int j = 0; j < path.length - 1; j++) {
+                int spur = path[j];
+                //ban the root path before the spur node, and the next edge of every found path sharing the root
+                stamp++;
+                for (int r = 0; r < j; r++) {
+                    bannedStamp[path[r]] = stamp;
+                }
+                IntList bannedNext = new IntList();
+                for (Candidate a : accepted) {
+                    if (a.nodes.length > j + 1 && a.sharesPrefix(path, j)) {
+                        bannedNext.add(a.nodes[j + 1]);
+                    }
+                }
+                int banStamp = stamp;
+                engine.setEdgeFilter((from, to) -> bannedStamp[to] != banStamp
+                        && (from != spur || !bannedNext.contains(to)));
+
+                engine.reset();
+                engine.seed(spur, 0.0);
+                int found = -1;
+                while (engine.hasNext()) {
+                    int u = engine.settleNext();
+                    if (companies.internedAt(u, company)) {
+                        found = u;
+                        break;
+                    }
+                }
+                if (found < 0) {
+                    continue;
+                }
+                List<UniversityStudent> spurPath = engine.pathTo(found);
+                int[] nodes = new int[j + spurPath.size()];
+                System.arraycopy(path, 0, nodes, 0, j);
+                for (int s = 0; s < spurPath.size(); s++) {
+                    nodes[j + s] = graph.idOf(spurPath.get(s));
+                }
+                Candidate c = new Candidate(nodes, costsOf(nodes, best.costs, j), sequence++, engine.settledCount());
+                if (known.add(c)) {
+                    candidates.add(c);
+                    //keep only as many candidates as can still be returned
+                    while (candidates.size() > k - accepted.size()) {
+                        known.remove(candidates.pollLast());
+                    }
+                }
+            }
+            best = candidates.pollFirst();
+        }
+        return routes;
+    }
+
+    //cumulative costs along the path, reusing the root costs up to and including index j
+    private double[] costsOf(int[] nodes, double[] rootCosts, int j) {
+        double[] costs = new double[nodes.length];
+        System.arraycopy(rootCosts, 0, costs, 0, j + 1);
+        for (int i = j; i + 1 < nodes.length; i++) {
+            costs[i + 1] = costs[i] + 1.0 / weightBetween(nodes[i], nodes[i + 1]);
+        }
+        return costs;
+    }
+
+    private int weightBetween(int u, int v) {
+        int[] offsets = graph.offsets();
+        int[] targetIds = graph.targets();
+        int best = 0;
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+            if (targetIds[e] == v) {
+                best = Math.max(best, graph.weights()[e]);
+            }
+        }
+        return best;
+    }
+
+    //a candidate path with the cost at every node along it
+    private static class Candidate implements Comparable<Candidate> {
+        final int[] nodes;
+        final double[] costs;
+        final long sequence;
+        final int settled;
+
+        Candidate(int[] nodes, double[] costs, long sequence, int settled) {
+            this.nodes = nodes;
+            this.costs = costs;
+            this.sequence = sequence;
+            this.settled = settled;
+        }
+
+        double cost() {
+            return costs[costs.length - 1];
+        }
+
+        boolean sharesPrefix(int[] other, int j) {
+            for (int i = 0; i <= j; i++) {
+                if (nodes[i] != other[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        ReferralRoute toRoute(CompactStudentGraph graph) {
+            List<UniversityStudent> path = new ArrayList<>(nodes.length);
+            for (int id : nodes) {
+                path.add(graph.studentAt(id));
+            }
+            return new ReferralRoute(path, cost(), settled);
+        }
+
+        @Override
+        public int compareTo(Candidate o) {
+            int c = Double.compare(cost(), o.cost());
+            return c != 0 ? c : Long.compare(sequence, o.sequence);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Candidate && Arrays.equals(nodes, ((Candidate) o).nodes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(nodes);
+        }
+    }
+
+    //small growable int list, to avoid boxing banned node IDs
+    private static class IntList {
+        private int[] items = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        boolean contains(int value) {
+            for (int i = 0; i < size; i++) {
+                if (items[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(items, size);
+        }
+    }
+}
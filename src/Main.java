@@ -210,7 +210,7 @@ public static String displayFriendRequestsAndChats(List<UniversityStudent> stude
         // Test FriendRequestThread and ChatThread with semaphores (20 pts)
         try {
             if (students.size() >= 2) {
-                ExecutorService executor = Executors.newFixedThreadPool(4);
+                ExecutorService executor = SocialExecutors.fromConfiguration();
                 UniversityStudent s1 = students.get(0);
                 UniversityStudent s2 = students.get(1);
                 // Submit multiple concurrent tasks.
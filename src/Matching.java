@@ -0,0 +1,82 @@
+import java.util.*;
+
+/**
+ * Matching is the immutable result of a roommate matching over a fixed list of students.
+ * It is backed by a copy of the student list and an int array of partner positions, and does not touch the
+ * students themselves: {@link #apply()} is the one explicit step that writes the pairs back through
+ * {@link UniversityStudent#setRoommate(UniversityStudent)}. Printing is left to {@link MatchingReporter}.
+ */
+public class Matching {
+    private final UniversityStudent[] students;
+    private final int[] partner; // partner position of every student, -1 if unmatched
+    private final boolean stable;
+    private Map<UniversityStudent, Integer> positions; // built on the first lookup by student
+
+    //takes ownership of partner, which must be symmetric
+    Matching(List<UniversityStudent> students, int[] partner, boolean stable) {
+        this.students = students.toArray(new UniversityStudent[0]);
+        this.partner = partner;
+        this.stable = stable;
+    }
+
+    //number of students the matching was computed over
+    public int size() {
+        return students.length;
+    }
+
+    //returns the student at a position of the input list
+    public UniversityStudent studentAt(int index) {
+        return students[index];
+    }
+
+    //returns the position of the roommate of the student at a position, or -1 if they are unmatched
+    public int partnerOf(int index) {
+        return partner[index];
+    }
+
+    //returns the roommate of a student in the matching, or null if they are unmatched or not in it
+    public synchronized UniversityStudent roommateOf(UniversityStudent student) {
+        if (positions == null) {
+            positions = new IdentityHashMap<>(students.length);
+            for (int i = 0; i < students.length; i++) {
+                positions.put(students[i], i);
+            }
+        }
+        Integer index = positions.get(student);
+        return index == null || partner[index] < 0 ? null : students[partner[index]];
+    }
+
+    //whether this is a stable matching, false if none existed and a proposal pass was used instead
+    public boolean isStable() {
+        return stable;
+    }
+
+    //number of pairs in the matching
+    public int pairCount() {
+        int count = 0;
+        for (int i = 0; i < partner.length; i++) {
+            if (partner[i] > i) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //number of students left without a roommate
+    public int unmatchedCount() {
+        int count = 0;
+        for (int p : partner) {
+            if (p < 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    //sets the roommate of every student to their partner in this matching, or to null if they are unmatched
+    public void apply() {
+        for (int i = 0; i < students.length; i++) {
+            students[i].setRoommate(partner[i] < 0 ? null : students[partner[i]]);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+import java.io.PrintStream;
+import java.util.*;
+
+/**
+ * MatchingReporter prints a {@link Matching} in the format GaleShapley has always used, and the per-shard
+ * latencies of a {@link ShardedMatching}.
+ * Reports are built in memory and written with one call, instead of one synchronized println per line.
+ */
+public class MatchingReporter {
+    public static void print(Matching matching, PrintStream out) {
+        StringBuilder report = new StringBuilder();
+        if (!matching.isStable()) {
+            report.append("\nNo stable roommate matching exists for these preferences; pairing by proposal order.\n");
+        }
+        report.append("\nRoommate Pairings (Gale-Shapley):\n");
+        for (int i = 0; i < matching.size(); i++) {
+            int partner = matching.partnerOf(i);
+            if (partner > i) {
+                report.append(matching.studentAt(i).name()).append(" paired with ")
+                        .append(matching.studentAt(partner).name()).append('\n');
+            }
+        }
+        out.print(report);
+        out.flush();
+    }
+
+    //prints one line per shard, slowest first, so the long tail is at the top
+    public static void printShards(ShardedMatching sharded, PrintStream out) {
+        List<ShardedMatching.Shard> shards = new ArrayList<>(sharded.getShards());
+        shards.sort((a, b) -> Long.compare(b.getNanos(), a.getNanos()));
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%nRoommate shards: %d, total %.2f ms%n", shards.size(), sharded.getNanos() / 1e6));
+        for (ShardedMatching.Shard shard : shards) {
+            report.append(shard).append('\n');
+        }
+        out.print(report);
+        out.flush();
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * MessageBus delivers chat messages between students without a global lock.
+ * Every receiver has an inbox, a lock-free queue that any number of senders append to, and every inbox is
+ * served by one of a small fixed set of event loop threads. A loop takes an inbox that has messages, delivers
+ * up to a batch of them with {@link UniversityStudent#addChatMessage(String, String)}, and moves on, so a busy
+ * receiver cannot hold up the others on its loop. An inbox is only ever handed to one loop at a time, so the
+ * messages of one receiver are delivered in the order they were queued, and messages from one sender to one
+ * receiver arrive in the order they were sent.
+ *
+ * <p>Delivery is asynchronous: a student's chat history is only written by the loop serving them, and should
+ * be read after {@link #flush()}. The loop threads are daemon threads. An inbox that has been emptied is
+ * retired and dropped, so only receivers with messages in flight keep one. Closing waits for sends already
+ * in progress, so every message counted as sent is delivered.</p>
+ */
+public class MessageBus implements Closeable {
+    private static final int BATCH = 256;
+
+    private final EventLoop[] loops;
+    private final ConcurrentHashMap<UniversityStudent, Inbox> inboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger sending = new AtomicInteger(); // sends past the closed check, see close
+    private volatile boolean closed;  // no new sends
+    private volatile boolean stopped; // no send in progress either; the loops exit once idle
+
+    /**
+     * Constructor for MessageBus, starting one event loop per available processor.
+     */
+    public MessageBus() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for MessageBus.
+     * @param eventLoops Number of event loop threads delivering messages.
+     */
+    public MessageBus(int eventLoops) {
+        if (eventLoops < 1) {
+            throw new IllegalArgumentException("At least one event loop is needed: " + eventLoops);
+        }
+        loops = new EventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            loops[i] = new EventLoop("message-loop-" + i);
+        }
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    //returns the bus shared by the chat threads, starting it on first use
+    public static MessageBus shared() {
+        return Shared.INSTANCE;
+    }
+
+    /**
+     * Queues a message for delivery to the receiver's chat history.
+     * @param sender The student sending the message.
+     * @param receiver The student receiving it.
+     * @param message The text of the message.
+     */
+    public void send(UniversityStudent sender, UniversityStudent receiver, String message) {
+        send(sender, receiver, message, null);
+    }
+
+    /**
+     * Queues a message for delivery to the receiver's chat history, and calls back once it is done with.
+     * @param sender The student sending the message.
+     * @param receiver The student receiving it.
+     * @param message The text of the message.
+     * @param onDelivered Called by the event loop after the message was delivered or its delivery failed, or
+     *                    null. It must not block.
+     */
+    public void send(UniversityStudent sender, UniversityStudent receiver, String message, Runnable onDelivered) {
+        enter();
+        try {
+            Inbox inbox = acquire(receiver);
+            inbox.queue.offer(new Envelope(sender.getName(), message, onDelivered));
+            sent.incrementAndGet();
+            inbox.schedule();
+            inbox.release();
+        } finally {
+            sending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Queues one message to many receivers. Each receiver's inbox is woken once for the whole batch.
+     * @param sender The student sending the message.
+     * @param receivers The students receiving it.
+     * @param message The text of the message.
+     */
+    public void broadcast(UniversityStudent sender, Iterable<UniversityStudent> receivers, String message) {
+        Envelope envelope = new Envelope(sender.getName(), message, null);
+        List<Inbox> acquired = new ArrayList<>();
+        enter();
+        try {
+            for (UniversityStudent receiver : receivers) {
+                Inbox inbox = acquire(receiver);
+                acquired.add(inbox);
+                inbox.queue.offer(envelope);
+            }
+            sent.addAndGet(acquired.size());
+            for (Inbox inbox : acquired) {
+                inbox.schedule();
+                inbox.release();
+            }
+        } finally {
+            sending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until every message sent before the call has been delivered, or failed to be. Returns early if
+     * the bus has been closed and its loops have exited, since nothing is left to wait for.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void flush() throws InterruptedException {
+        long target = sent.get();
+        while (delivered.get() + failed.get() < target) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (stopped && !anyLoopAlive()) {
+                return;
+            }
+            LockSupport.parkNanos(20_000);
+        }
+    }
+
+    private boolean anyLoopAlive() {
+        for (EventLoop loop : loops) {
+            if (loop.thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //number of messages queued so far
+    public long getSentCount() {
+        return sent.get();
+    }
+
+    //number of messages delivered so far
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    //number of messages whose delivery threw an exception
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    /**
+     * Delivers the messages already queued and stops the event loops. Sends in progress finish first;
+     * sending afterwards is an error.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        //a send either saw closed and backed out, or is counted here until its message is queued
+        while (sending.get() > 0) {
+            Thread.onSpinWait();
+        }
+        stopped = true;
+        for (EventLoop loop : loops) {
+            LockSupport.unpark(loop.thread);
+        }
+        boolean interrupted = false;
+        for (EventLoop loop : loops) {
+            while (loop.thread.isAlive()) {
+                try {
+                    loop.thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    //passes the closing gate; the caller decrements sending when done
+    private void enter() {
+        sending.incrementAndGet();
+        if (closed) {
+            sending.decrementAndGet();
+            throw new IllegalStateException("Message bus is closed.");
+        }
+    }
+
+    //returns the receiver's inbox, reserved so it cannot be retired until released
+    private Inbox acquire(UniversityStudent receiver) {
+        while (true) {
+            Inbox inbox = inboxes.get(receiver);
+            if (inbox == null) {
+                inbox = inboxes.computeIfAbsent(receiver,
+                        r -> new Inbox(r, loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)]));
+            }
+            if (inbox.acquire()) {
+                return inbox;
+            }
+            Thread.yield(); // retired; its loop delivers what is left and then drops it
+        }
+    }
+
+    private static class Envelope {
+        final String sender;
+        final String message;
+        final Runnable onDelivered;
+
+        Envelope(String sender, String message, Runnable onDelivered) {
+            this.sender = sender;
+            this.message = message;
+            this.onDelivered = onDelivered;
+        }
+    }
+
+    //created on first use of shared()
+    private static class Shared {
+        static final MessageBus INSTANCE = new MessageBus();
+    }
+
+    //the messages waiting for one receiver; scheduled is set while the inbox is queued on or served by its loop,
+    //and users counts the senders holding it, or is RETIRED once its loop has started dropping it
+    private class Inbox {
+        static final int RETIRED = -1;
+
+        final UniversityStudent receiver;
+        final EventLoop loop;
+        final ConcurrentLinkedQueue<Envelope> queue = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicInteger users = new AtomicInteger();
+
+        Inbox(UniversityStudent receiver, EventLoop loop) {
+            this.receiver = receiver;
+            this.loop = loop;
+        }
+
+        boolean acquire() {
+            int count;
+            do {
+                count = users.get();
+                if (count == RETIRED) {
+                    return false;
+                }
+            } while (!users.compareAndSet(count, count + 1));
+            return true;
+        }
+
+        void release() {
+            users.decrementAndGet();
+        }
+
+        void schedule() {
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+                loop.ready(this);
+            }
+        }
+
+        //delivers up to a batch, then hands the inbox back to the loop if messages are left, or retires it
+        void drain() {
+            if (deliver(BATCH) == BATCH) {
+                loop.ready(this); // still scheduled; let the other inboxes of the loop go first
+                return;
+            }
+            if (queue.isEmpty() && users.compareAndSet(0, RETIRED)) {
+                //senders offer before they release, so whatever they queued is here now
+                deliver(Integer.MAX_VALUE);
+                inboxes.remove(receiver, this);
+                return;
+            }
+            scheduled.set(false);
+            if (!queue.isEmpty()) {
+                schedule();
+            }
+        }
+
+        private int deliver(int limit) {
+            int count = 0;
+            int failures = 0;
+            Envelope envelope;
+            while (count + failures < limit && (envelope = queue.poll()) != null) {
+                try {
+                    receiver.addChatMessage(envelope.sender, envelope.message);
+                    count++;
+                } catch (RuntimeException e) {
+                    failures++;
+                }
+                if (envelope.onDelivered != null) {
+                    envelope.onDelivered.run();
+                }
+            }
+            delivered.addAndGet(count);
+            failed.addAndGet(failures);
+            return count + failures;
+        }
+    }
+
+    private class EventLoop implements Runnable {
+        final Thread thread;
+        final ConcurrentLinkedQueue<Inbox> ready = new ConcurrentLinkedQueue<>();
+        volatile boolean sleeping;
+
+        EventLoop(String name) {
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+        }
+
+        void ready(Inbox inbox) {
+            ready.offer(inbox);
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Inbox inbox = ready.poll();
+                if (inbox != null) {
+                    inbox.drain();
+                    continue;
+                }
+                if (stopped) {
+                    return;
+                }
+                //announce the sleep before the last look, so a sender either sees it or its inbox is seen here
+                sleeping = true;
+                if (ready.isEmpty() && !stopped) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+            }
+        }
+    }
+}
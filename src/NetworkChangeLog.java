@@ -0,0 +1,450 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * NetworkChangeLog is an append-only log of the mutations made to a student network: students added,
+ * removed or updated, edges added, roommates assigned and friend requests sent.
+ * Records are encoded into a direct buffer and written through a FileChannel; the channel is forced to
+ * disk once every syncEvery records (or on {@link #sync()} and {@link #close()}), so one fsync covers a
+ * whole batch of events. Every record carries a CRC32, and a torn or corrupt tail left by a crash is cut
+ * off when the log is opened again.
+ *
+ * <p>Layout (big-endian): magic "LHCL", format version, generation, then one record per event: payload
+ * length, CRC32 of the payload, and the payload (event type followed by its fields). Students are
+ * referred to by name. The generation is bumped each time the log is compacted into a snapshot.</p>
+ */
+public class NetworkChangeLog implements Closeable {
+    private static final int MAGIC = 0x4C48434C; // "LHCL"
+    static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    private static final int RECORD_HEADER_SIZE = 4 + 4;
+
+    private static final byte ADD_STUDENT = 1;
+    private static final byte REMOVE_STUDENT = 2;
+    private static final byte UPDATE_STUDENT = 3;
+    private static final byte ADD_EDGE = 4;
+    private static final byte SET_ROOMMATE = 5;
+    private static final byte FRIEND_REQUEST = 6;
+
+    /**
+     * Handler receives the events of a log when it is opened, in the order they were written.
+     */
+    public interface Handler {
+        //roommate is null when the student was added without one
+        void addStudent(String name, int age, String gender, int year, String major, double gpa,
+                        List<String> roommatePreferences, List<String> previousInternships, String roommate);
+
+        void removeStudent(String name);
+
+        void updateStudent(String name, int age, String major, List<String> roommatePreferences,
+                           List<String> previousInternships);
+
+        void addEdge(String student1, String student2, int weight);
+
+        //roommate is null when the assignment was cleared
+        void setRoommate(String student, String roommate);
+
+        void friendRequest(String receiver, String requester);
+    }
+
+    private final FileChannel channel;
+    private final int syncEvery;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+    private ByteBuffer record = ByteBuffer.allocate(4096);
+    private final CRC32 crc = new CRC32();
+    private long generation;
+    private long events; // events in the log, replayed or appended
+    private int unsynced; // events appended since the last sync
+    private long syncs;
+
+    private NetworkChangeLog(FileChannel channel, int syncEvery) {
+        this.channel = channel;
+        this.syncEvery = syncEvery;
+    }
+
+    /**
+     * Opens a change log, creating it if needed, and replays its events.
+     * A log from a generation before the given one is already part of the snapshot it was compacted into,
+     * so it is emptied instead of replayed.
+     * @param filename The log file.
+     * @param generation The generation the log is expected to have, the checkpoint of the loaded snapshot.
+     * @param syncEvery The number of events written between two forces of the file to disk.
+     * @param handler The handler to replay the existing events into.
+     * @return The log, positioned after its last complete event.
+     * @throws IOException If the file cannot be read or written, is not a change log, or is newer than
+     *                     the snapshot it is replayed on top of.
+     */
+    public static NetworkChangeLog open(String filename, long generation, int syncEvery, Handler handler)
+            throws IOException {
+        if (syncEvery < 1) {
+            throw new IllegalArgumentException("syncEvery must be at least 1: " + syncEvery);
+        }
+        FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        NetworkChangeLog log = new NetworkChangeLog(channel, syncEvery);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                log.reset(generation);
+                return log;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a student network change log: " + filename);
+            }
+            int version = header.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported change log version " + version + " in " + filename);
+            }
+            long logGeneration = header.getLong();
+            if (logGeneration < generation) {
+                log.reset(generation); // compacted, but not emptied before a crash
+                return log;
+            }
+            if (logGeneration > generation) {
+                throw new IOException("Change log " + filename + " has generation " + logGeneration
+                        + " but the snapshot only covers up to " + generation);
+            }
+            log.generation = logGeneration;
+            long end = log.replay(handler);
+            if (end < channel.size()) {
+                channel.truncate(end); // drop a torn tail
+            }
+            channel.position(end);
+            return log;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    //reads every complete record and returns the offset after the last one
+    private long replay(Handler handler) throws IOException {
+        long size = channel.size();
+        long position = HEADER_SIZE; // start of the next record
+        ByteBuffer in = ByteBuffer.allocate(1 << 20);
+        in.limit(0);
+        long readPosition = HEADER_SIZE; // file offset of the byte after in.limit()
+        while (true) {
+            if (in.remaining() < RECORD_HEADER_SIZE) {
+                in = fill(in, RECORD_HEADER_SIZE, readPosition);
+                readPosition = position + in.remaining();
+                if (in.remaining() < RECORD_HEADER_SIZE) {
+                    return position;
+                }
+            }
+            int length = in.getInt(in.position());
+            int checksum = in.getInt(in.position() + 4);
+            if (length <= 0 || length > size - position - RECORD_HEADER_SIZE) {
+                return position; // torn or corrupt length
+            }
+            if (in.remaining() < RECORD_HEADER_SIZE + length) {
+                in = fill(in, RECORD_HEADER_SIZE + length, readPosition);
+                readPosition = position + in.remaining();
+                if (in.remaining() < RECORD_HEADER_SIZE + length) {
+                    return position;
+                }
+            }
+            crc.reset();
+            crc.update(in.array(), in.arrayOffset() + in.position() + RECORD_HEADER_SIZE, length);
+            if ((int) crc.getValue() != checksum) {
+                return position;
+            }
+            ByteBuffer payload = in.slice();
+            payload.position(RECORD_HEADER_SIZE);
+            payload.limit(RECORD_HEADER_SIZE + length);
+            try {
+                dispatch(payload, handler);
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid change log event at offset " + position + ": " + e.getMessage(), e);
+            }
+            in.position(in.position() + RECORD_HEADER_SIZE + length);
+            position += RECORD_HEADER_SIZE + length;
+            events++;
+        }
+    }
+
+    //moves the unread bytes to the front of the buffer, growing it if needed, and reads more after them
+    private ByteBuffer fill(ByteBuffer in, int needed, long readPosition) throws IOException {
+        if (in.capacity() < needed) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(needed, in.capacity() * 2));
+            bigger.put(in);
+            in = bigger;
+        } else {
+            in.compact();
+        }
+        long position = readPosition;
+        while (in.hasRemaining()) {
+            int read = channel.read(in, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        in.flip();
+        return in;
+    }
+
+    private static void dispatch(ByteBuffer in, Handler handler) {
+        byte type = in.get();
+        switch (type) {
+            case ADD_STUDENT:
+                handler.addStudent(getString(in), in.getInt(), getString(in), in.getInt(), getString(in),
+                        in.getDouble(), getList(in), getList(in), getOptionalString(in));
+                break;
+            case REMOVE_STUDENT:
+                handler.removeStudent(getString(in));
+                break;
+            case UPDATE_STUDENT:
+                handler.updateStudent(getString(in), in.getInt(), getString(in), getList(in), getList(in));
+                break;
+            case ADD_EDGE:
+                handler.addEdge(getString(in), getString(in), in.getInt());
+                break;
+            case SET_ROOMMATE:
+                handler.setRoommate(getString(in), getOptionalString(in));
+                break;
+            case FRIEND_REQUEST:
+                handler.friendRequest(getString(in), getString(in));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown event type " + type);
+        }
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String getOptionalString(ByteBuffer in) {
+        return in.get() == 0 ? null : getString(in);
+    }
+
+    private static List<String> getList(ByteBuffer in) {
+        int count = in.getInt();
+        List<String> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(getString(in));
+        }
+        return list;
+    }
+
+    //logs a student added to the network, with all of their attributes and their roommate
+    public void addStudent(UniversityStudent student) throws IOException {
+        begin(ADD_STUDENT);
+        putString(student.getName());
+        putInt(student.age);
+        putString(student.gender);
+        putInt(student.year);
+        putString(student.major);
+        putDouble(student.gpa);
+        putList(student.roommatePreferences);
+        putList(student.previousInternships);
+        putOptionalString(student.getRoommate() == null ? null : student.getRoommate().getName());
+        end();
+    }
+
+    //logs a student removed from the network
+    public void removeStudent(UniversityStudent student) throws IOException {
+        begin(REMOVE_STUDENT);
+        putString(student.getName());
+        end();
+    }
+
+    //logs the current values of the attributes a student can change
+    public void updateStudent(UniversityStudent student) throws IOException {
+        begin(UPDATE_STUDENT);
+        putString(student.getName());
+        putInt(student.age);
+        putString(student.major);
+        putList(student.roommatePreferences);
+        putList(student.previousInternships);
+        end();
+    }
+
+    //logs an edge added between two students
+    public void addEdge(UniversityStudent student1, UniversityStudent student2, int weight) throws IOException {
+        begin(ADD_EDGE);
+        putString(student1.getName());
+        putString(student2.getName());
+        putInt(weight);
+        end();
+    }
+
+    //logs a roommate assignment, or its removal if roommate is null
+    public void setRoommate(UniversityStudent student, UniversityStudent roommate) throws IOException {
+        begin(SET_ROOMMATE);
+        putString(student.getName());
+        putOptionalString(roommate == null ? null : roommate.getName());
+        end();
+    }
+
+    //logs a friend request from requester to receiver; replaying it accepts a pending request the other way
+    //instead, as sending it did
+    public void friendRequest(UniversityStudent receiver, UniversityStudent requester) throws IOException {
+        begin(FRIEND_REQUEST);
+        putString(receiver.getName());
+        putString(requester.getName());
+        end();
+    }
+
+    private void begin(byte type) {
+        record.clear();
+        record.put(type);
+    }
+
+    private void ensureRecord(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            bigger.put(record);
+            record = bigger;
+        }
+    }
+
+    private void putByte(int value) {
+        ensureRecord(1);
+        record.put((byte) value);
+    }
+
+    private void putInt(int value) {
+        ensureRecord(4);
+        record.putInt(value);
+    }
+
+    private void putDouble(double value) {
+        ensureRecord(8);
+        record.putDouble(value);
+    }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureRecord(4 + bytes.length);
+        record.putInt(bytes.length);
+        record.put(bytes);
+    }
+
+    private void putOptionalString(String value) {
+        putByte(value == null ? 0 : 1);
+        if (value != null) {
+            putString(value);
+        }
+    }
+
+    private void putList(List<String> values) {
+        putInt(values.size());
+        for (String value : values) {
+            putString(value);
+        }
+    }
+
+    //frames the encoded record into the write buffer, and syncs when a batch is complete
+    private void end() throws IOException {
+        int length = record.position();
+        crc.reset();
+        crc.update(record.array(), record.arrayOffset(), length);
+        if (buffer.remaining() < RECORD_HEADER_SIZE + length) {
+            flush();
+        }
+        record.flip();
+        if (buffer.remaining() < RECORD_HEADER_SIZE + length) {
+            //larger than the whole buffer: write it directly
+            ByteBuffer framed = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+            framed.putInt(length).putInt((int) crc.getValue()).put(record);
+            framed.flip();
+            writeFully(framed);
+        } else {
+            buffer.putInt(length).putInt((int) crc.getValue()).put(record);
+        }
+        events++;
+        if (++unsynced >= syncEvery) {
+            sync();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer bytes, long position) throws IOException {
+        while (bytes.hasRemaining()) {
+            int read = channel.read(bytes, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Writes the buffered events and forces them to disk.
+     * @throws IOException If the log cannot be written.
+     */
+    public void sync() throws IOException {
+        flush();
+        channel.force(false);
+        unsynced = 0;
+        syncs++;
+    }
+
+    /**
+     * Empties the log and starts the given generation, after its events were compacted into a snapshot.
+     * Buffered events that were not written yet are dropped along with the rest.
+     * @param generation The new generation.
+     * @throws IOException If the log cannot be written.
+     */
+    public void reset(long generation) throws IOException {
+        buffer.clear();
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(generation);
+        header.flip();
+        channel.position(0);
+        writeFully(header);
+        channel.force(false);
+        this.generation = generation;
+        events = 0;
+        unsynced = 0;
+    }
+
+    //returns the generation of the log
+    public long getGeneration() {
+        return generation;
+    }
+
+    //returns the number of events in the log, replayed when it was opened or appended since
+    public long getEventCount() {
+        return events;
+    }
+
+    //returns the number of times the log was forced to disk
+    public long getSyncCount() {
+        return syncs;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,370 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * NetworkSnapshot saves a parsed student network to a compact binary file and loads it back, so a restart
+ * does not have to parse the text file and rebuild the graph again.
+ * The file holds one string dictionary for names, genders, majors and companies, the student table as
+ * parallel columns of dictionary IDs and numbers, and the graph in CSR form. Loading maps the file with a
+ * FileChannel and copies every column with one bulk read, so no object is created per edge.
+ *
+ * <p>Layout (big-endian): magic "LHNS", format version, student count, dictionary size, dictionary byte
+ * length, edge count, preference count, internship count, friend request count, checkpoint, friend count, then
+ * the dictionary (length-prefixed UTF-8), the student columns, and the graph's offsets, targets and weights.
+ * Version 1 files have no friend request count, checkpoint or friend request columns, and version 2 files no
+ * friend count or friend columns; both are still read.</p>
+ */
+public class NetworkSnapshot {
+    private static final int MAGIC = 0x4C484E53; // "LHNS"
+    static final int FORMAT_VERSION = 3;
+    private static final int V1_HEADER_SIZE = 2 * 4 + 8 * 4; // after magic and version
+    private static final int V2_HEADER_SIZE = 2 * 4 + 8 * 6;
+    private static final int HEADER_SIZE = 2 * 4 + 8 * 7;
+    private static final int MAX_MAP_SIZE = 1 << 30;
+
+    private final List<UniversityStudent> students;
+    private final CompactStudentGraph graph;
+    private final long checkpoint;
+
+    private NetworkSnapshot(List<UniversityStudent> students, CompactStudentGraph graph, long checkpoint) {
+        this.students = students;
+        this.graph = graph;
+        this.checkpoint = checkpoint;
+    }
+
+    //returns the loaded students, in graph ID order
+    public List<UniversityStudent> getStudents() {
+        return students;
+    }
+
+    //returns the loaded graph
+    public CompactStudentGraph getGraph() {
+        return graph;
+    }
+
+    //number of the first change log generation that is not part of this snapshot, 0 for version 1 files
+    long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Writes the graph and its students to a snapshot file, replacing it if it exists.
+     * Roommate assignments, friend requests and friends are kept; chat history is not part of the snapshot.
+     * @param filename The file to write.
+     * @param graph The graph to save; its students are saved in ID order.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(String filename, CompactStudentGraph graph) throws IOException {
+        write(filename, graph, 0);
+    }
+
+    //writes a snapshot that covers the change log generations before the checkpoint, and forces it to disk
+    static void write(String filename, CompactStudentGraph graph, long checkpoint) throws IOException {
+        int n = graph.size();
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int[] names = new int[n];
+        int[] ages = new int[n];
+        int[] genders = new int[n];
+        int[] years = new int[n];
+        int[] majors = new int[n];
+        double[] gpas = new double[n];
+        int[] roommates = new int[n];
+        int[] prefOffsets = new int[n + 1];
+        int[] internOffsets = new int[n + 1];
+        int[] friendOffsets = new int[n + 1];
+        int[] acceptedOffsets = new int[n + 1];
+        List<Integer> prefs = new ArrayList<>();
+        List<Integer> interns = new ArrayList<>();
+        List<Integer> friends = new ArrayList<>();
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            UniversityStudent s = graph.studentAt(i);
+            names[i] = intern(dictionary, s.name);
+            ages[i] = s.age;
+            genders[i] = intern(dictionary, s.gender);
+            years[i] = s.year;
+            majors[i] = intern(dictionary, s.major);
+            gpas[i] = s.gpa;
+            roommates[i] = s.getRoommate() == null ? -1 : graph.idOf(s.getRoommate());
+            for (String pref : s.roommatePreferences) {
+                prefs.add(intern(dictionary, pref));
+            }
+            prefOffsets[i + 1] = prefs.size();
+            for (String internship : s.previousInternships) {
+                interns.add(intern(dictionary, internship));
+            }
+            internOffsets[i + 1] = interns.size();
+            for (String requester : s.getFriendRequests()) {
+                friends.add(intern(dictionary, requester));
+            }
+            friendOffsets[i + 1] = friends.size();
+            for (String friend : s.getFriends()) {
+                accepted.add(intern(dictionary, friend));
+            }
+            acceptedOffsets[i + 1] = accepted.size();
+        }
+        List<byte[]> encoded = new ArrayList<>(dictionary.size());
+        long dictionaryBytes = 0;
+        for (String word : dictionary.keySet()) {
+            byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            dictionaryBytes += 4 + bytes.length;
+        }
+
+        Path path = Paths.get(filename);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Output out = new Output(channel)) {
+            out.putInt(MAGIC);
+            out.putInt(FORMAT_VERSION);
+            out.putInt(n);
+            out.putInt(dictionary.size());
+            out.putLong(dictionaryBytes);
+            out.putLong(graph.targets().length);
+            out.putLong(prefs.size());
+            out.putLong(interns.size());
+            out.putLong(friends.size());
+            out.putLong(checkpoint);
+            out.putLong(accepted.size());
+            for (byte[] bytes : encoded) {
+                out.putInt(bytes.length);
+                out.put(bytes);
+            }
+            out.putInts(names);
+            out.putInts(ages);
+            out.putInts(genders);
+            out.putInts(years);
+            out.putInts(majors);
+            out.putDoubles(gpas);
+            out.putInts(roommates);
+            out.putInts(prefOffsets);
+            out.putInts(prefs.stream().mapToInt(Integer::intValue).toArray());
+            out.putInts(internOffsets);
+            out.putInts(interns.stream().mapToInt(Integer::intValue).toArray());
+            out.putInts(friendOffsets);
+            out.putInts(friends.stream().mapToInt(Integer::intValue).toArray());
+            out.putInts(acceptedOffsets);
+            out.putInts(accepted.stream().mapToInt(Integer::intValue).toArray());
+            out.putInts(graph.offsets());
+            out.putInts(graph.targets());
+            out.putInts(graph.weights());
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    private static int intern(Map<String, Integer> dictionary, String word) {
+        return dictionary.computeIfAbsent(word, w -> dictionary.size());
+    }
+
+    /**
+     * Loads a snapshot file written by {@link #write(String, CompactStudentGraph)}.
+     * @param filename The file to read.
+     * @return The loaded students and graph.
+     * @throws IOException If the file cannot be read or is not a snapshot of a supported version.
+     */
+    public static NetworkSnapshot load(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            ByteBuffer start = in.map(8);
+            if (start.getInt() != MAGIC) {
+                throw new IOException("Not a student network snapshot: " + filename);
+            }
+            int version = start.getInt();
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + filename);
+            }
+            ByteBuffer header = in.map(version == 1 ? V1_HEADER_SIZE : version == 2 ? V2_HEADER_SIZE : HEADER_SIZE);
+            int n = header.getInt();
+            int dictionarySize = header.getInt();
+            long dictionaryBytes = header.getLong();
+            int edges = toInt(header.getLong());
+            int prefCount = toInt(header.getLong());
+            int internCount = toInt(header.getLong());
+            int friendCount = version == 1 ? 0 : toInt(header.getLong());
+            long checkpoint = version == 1 ? 0 : header.getLong();
+            int acceptedCount = version < 3 ? 0 : toInt(header.getLong());
+
+            String[] dictionary = new String[dictionarySize];
+            ByteBuffer words = in.map(dictionaryBytes);
+            byte[] scratch = new byte[64];
+            for (int i = 0; i < dictionarySize; i++) {
+                int length = words.getInt();
+                if (length > scratch.length) {
+                    scratch = new byte[length];
+                }
+                words.get(scratch, 0, length);
+                dictionary[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+
+            int[] names = in.ints(n);
+            int[] ages = in.ints(n);
+            int[] genders = in.ints(n);
+            int[] years = in.ints(n);
+            int[] majors = in.ints(n);
+            double[] gpas = in.doubles(n);
+            int[] roommates = in.ints(n);
+            int[] prefOffsets = in.ints(n + 1);
+            int[] prefs = in.ints(prefCount);
+            int[] internOffsets = in.ints(n + 1);
+            int[] interns = in.ints(internCount);
+            int[] friendOffsets = version == 1 ? new int[n + 1] : in.ints(n + 1);
+            int[] friends = in.ints(friendCount);
+            int[] acceptedOffsets = version < 3 ? new int[n + 1] : in.ints(n + 1);
+            int[] accepted = in.ints(acceptedCount);
+            int[] offsets = in.ints(n + 1);
+            int[] targets = in.ints(edges);
+            int[] weights = in.ints(edges);
+
+            UniversityStudent[] students = new UniversityStudent[n];
+            for (int i = 0; i < n; i++) {
+                students[i] = new UniversityStudent(dictionary[names[i]], ages[i], dictionary[genders[i]], years[i],
+                        dictionary[majors[i]], gpas[i], words(dictionary, prefs, prefOffsets[i], prefOffsets[i + 1]),
+                        words(dictionary, interns, internOffsets[i], internOffsets[i + 1]));
+            }
+            for (int i = 0; i < n; i++) {
+                if (roommates[i] >= 0) {
+                    students[i].setRoommate(students[roommates[i]]);
+                }
+                for (int f = friendOffsets[i]; f < friendOffsets[i + 1]; f++) {
+                    students[i].addFriendRequest(dictionary[friends[f]]);
+                }
+                for (int f = acceptedOffsets[i]; f < acceptedOffsets[i + 1]; f++) {
+                    students[i].addFriend(dictionary[accepted[f]]);
+                }
+            }
+            CompactStudentGraph graph = new CompactStudentGraph(students, offsets, targets, weights);
+            return new NetworkSnapshot(Collections.unmodifiableList(Arrays.asList(students)), graph, checkpoint);
+        }
+    }
+
+    private static List<String> words(String[] dictionary, int[] ids, int from, int to) {
+        List<String> list = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add(dictionary[ids[i]]);
+        }
+        return list;
+    }
+
+    private static int toInt(long count) throws IOException {
+        if (count < 0 || count > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot section too large: " + count);
+        }
+        return (int) count;
+    }
+
+    //buffered big-endian writer over a FileChannel
+    private static class Output implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void putInts(int[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(4);
+                int length = Math.min(buffer.remaining() / 4, values.length - offset);
+                buffer.asIntBuffer().put(values, offset, length);
+                buffer.position(buffer.position() + length * 4);
+                offset += length;
+            }
+        }
+
+        void putDoubles(double[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(8);
+                int length = Math.min(buffer.remaining() / 8, values.length - offset);
+                buffer.asDoubleBuffer().put(values, offset, length);
+                buffer.position(buffer.position() + length * 8);
+                offset += length;
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    //sequential reader that maps each section of the file as it is needed
+    private static class Input {
+        private final FileChannel channel;
+        private long position;
+
+        Input(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        ByteBuffer map(long size) throws IOException {
+            if (size > MAX_MAP_SIZE || position + size > channel.size()) {
+                throw new IOException("Truncated or corrupt snapshot section at offset " + position);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            position += size;
+            return mapped;
+        }
+
+        int[] ints(int count) throws IOException {
+            int[] values = new int[count];
+            for (int offset = 0; offset < count; ) {
+                int length = Math.min(count - offset, MAX_MAP_SIZE / 4);
+                map(length * 4L).asIntBuffer().get(values, offset, length);
+                offset += length;
+            }
+            return values;
+        }
+
+        double[] doubles(int count) throws IOException {
+            double[] values = new double[count];
+            for (int offset = 0; offset < count; ) {
+                int length = Math.min(count - offset, MAX_MAP_SIZE / 8);
+                map(length * 8L).asDoubleBuffer().get(values, offset, length);
+                offset += length;
+            }
+            return values;
+        }
+    }
+}
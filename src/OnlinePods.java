@@ -0,0 +1,461 @@
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * OnlinePods keeps a pod assignment up to date as students arrive, without clustering the whole graph again.
+ * It is created by {@link PodFormation#online(List, int)} from pods that were already formed.
+ *
+ * <p>{@link #placeStudent(UniversityStudent)} reads the arriving student's neighbor list once and puts them in
+ * the pod they are most strongly connected to, among the pods that still have room. Every arrival that could
+ * not join its best pod because it was full adds the weight it missed to the drift; once the drift reaches a
+ * fraction of the intra-pod weight, a background thread revisits the students that arrived since the last
+ * rebalance and moves each to a better pod, or swaps them with a member of it, when that raises the
+ * intra-pod weight. The rebalance takes the lock for one student at a time, so an arrival never waits for
+ * more than one such step.</p>
+ *
+ * <p>Students are numbered in the order they are known: first the students of the graph the pods were
+ * formed from, then the arrivals. An arrival's edges are read from the graph when they arrive and recorded on
+ * both sides, so later changes to the graph are not seen.</p>
+ */
+public class OnlinePods implements Closeable {
+    private final StudentGraph source;
+    private final CompactStudentGraph graph;
+    private final int podSize;
+    private final double driftThreshold;
+
+    private final Map<UniversityStudent, Integer> ids;
+    private final List<UniversityStudent> students;
+    private final List<int[]> arrivalTargets = new ArrayList<>(); // edges of arrivals, by id - graph.size()
+    private final List<int[]> arrivalWeights = new ArrayList<>();
+    private int[][] laterTargets; // edges from each student to the students that arrived after them
+    private int[][] laterWeights;
+    private int[] laterCount;
+    private int[] podOf;
+    private int[][] members;
+    private int[] fill;
+    private int podCount;
+    private int[] open; // pods with room, and the position of each pod in it
+    private int[] openIndex;
+    private int openCount;
+
+    private long intraWeight;
+    private long missedWeight; // weight arrivals could not get since the last rebalance
+    private List<Integer> recent = new ArrayList<>();
+    private long[] podWeight = new long[0]; // scratch: weight from one student to each pod
+    private int[] touched = new int[0];
+
+    private final ExecutorService rebalancer;
+    private Future<?> rebalance;
+    private long rebalances;
+    private long rebalanceMoves;
+    private long rebalanceNanos;
+
+    OnlinePods(StudentGraph source, CompactStudentGraph graph, List<List<UniversityStudent>> pods, int podSize,
+               double driftThreshold) {
+        if (podSize < 1) {
+            throw new IllegalArgumentException("Pod size must be at least 1: " + podSize);
+        }
+        this.source = source;
+        this.graph = graph;
+        this.podSize = podSize;
+        this.driftThreshold = driftThreshold;
+        int n = graph.size();
+        ids = new IdentityHashMap<>(n * 2);
+        students = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            ids.put(graph.studentAt(i), i);
+            students.add(graph.studentAt(i));
+        }
+        podOf = new int[Math.max(16, n)];
+        Arrays.fill(podOf, -1);
+        laterTargets = new int[podOf.length][];
+        laterWeights = new int[podOf.length][];
+        laterCount = new int[podOf.length];
+        members = new int[Math.max(16, pods.size())][];
+        fill = new int[members.length];
+        open = new int[members.length];
+        openIndex = new int[members.length];
+        for (List<UniversityStudent> pod : pods) {
+            if (pod.size() > podSize) {
+                throw new IllegalArgumentException("Pod of " + pod.size() + " students is over the pod size "
+                        + podSize);
+            }
+            int p = newPod();
+            for (UniversityStudent s : pod) {
+                Integer id = ids.get(s);
+                if (id == null || podOf[id] >= 0) {
+                    throw new IllegalArgumentException("Student is not in the graph or in two pods: "
+                            + s.getName());
+                }
+                join(id, p);
+            }
+        }
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights();
+        for (int i = 0; i < n; i++) {
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                if (targets[e] > i && podOf[i] >= 0 && podOf[i] == podOf[targets[e]]) {
+                    intraWeight += weights[e];
+                }
+            }
+        }
+        rebalancer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "pod-rebalance");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Places a student in the non-full pod they have the strongest connections to. A student with no
+     * connection to any pod with room goes to a pod with room, or to a new pod if every pod is full.
+     * A student who is not in the graph the pods were formed from must have been added to it first, with
+     * {@link StudentGraph#addStudent(UniversityStudent)}, so their neighbor list is known.
+     * @param student The arriving student.
+     * @return The index of the pod the student was placed in.
+     */
+    public synchronized int placeStudent(UniversityStudent student) {
+        Integer known = ids.get(student);
+        int id;
+        if (known == null) {
+            id = arrive(student);
+        } else if (podOf[known] >= 0) {
+            throw new IllegalArgumentException("Student already has a pod: " + student.getName());
+        } else {
+            id = known;
+        }
+        int count = collect(id);
+        int best = -1;
+        int bestAny = -1;
+        for (int t = 0; t < count; t++) {
+            int p = touched[t];
+            if (bestAny < 0 || podWeight[p] > podWeight[bestAny]) {
+                bestAny = p;
+            }
+            if (fill[p] < podSize && (best < 0 || podWeight[p] > podWeight[best])) {
+                best = p;
+            }
+        }
+        long gained = best < 0 ? 0 : podWeight[best];
+        long missed = bestAny < 0 ? 0 : podWeight[bestAny] - gained;
+        clear(count);
+        if (best < 0) {
+            best = openCount > 0 ? open[openCount - 1] : newPod();
+        }
+        join(id, best);
+        intraWeight += gained;
+        missedWeight += missed;
+        recent.add(id);
+        if (rebalance == null && missedWeight > 0 && missedWeight >= driftThreshold * Math.max(1, intraWeight)
+                && !rebalancer.isShutdown()) {
+            List<Integer> batch = recent;
+            recent = new ArrayList<>();
+            missedWeight = 0;
+            rebalance = rebalancer.submit(() -> rebalance(batch));
+        }
+        return best;
+    }
+
+    //returns the pod of a student, or -1 if they have none
+    public synchronized int podOf(UniversityStudent student) {
+        Integer id = ids.get(student);
+        return id == null ? -1 : podOf[id];
+    }
+
+    //returns a copy of the current pods
+    public synchronized List<List<UniversityStudent>> getPods() {
+        List<List<UniversityStudent>> pods = new ArrayList<>(podCount);
+        for (int p = 0; p < podCount; p++) {
+            List<UniversityStudent> pod = new ArrayList<>(fill[p]);
+            for (int m = 0; m < fill[p]; m++) {
+                pod.add(students.get(members[p][m]));
+            }
+            pods.add(pod);
+        }
+        return pods;
+    }
+
+    //total weight of the edges inside pods, as seen by the online placement
+    public synchronized long getIntraPodWeight() {
+        return intraWeight;
+    }
+
+    //weight missed by arrivals since the last rebalance, as a fraction of the intra-pod weight
+    public synchronized double getDrift() {
+        return missedWeight / (double) Math.max(1, intraWeight);
+    }
+
+    //number of rebalances completed
+    public synchronized long getRebalanceCount() {
+        return rebalances;
+    }
+
+    //number of students moved or swapped by rebalances
+    public synchronized long getRebalanceMoves() {
+        return rebalanceMoves;
+    }
+
+    //time spent in rebalances, in nanoseconds
+    public synchronized long getRebalanceNanos() {
+        return rebalanceNanos;
+    }
+
+    /**
+     * Waits for the running rebalance, if any, to finish.
+     */
+    public void awaitRebalance() {
+        Future<?> running;
+        synchronized (this) {
+            running = rebalance;
+        }
+        if (running == null) {
+            return;
+        }
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a rebalance.");
+        } catch (CancellationException e) {
+            // closed while running
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    //stops the rebalance thread; a running rebalance stops after its current student
+    @Override
+    public void close() {
+        rebalancer.shutdownNow();
+    }
+
+    //numbers an arriving student and copies their edges to known students
+    private int arrive(UniversityStudent student) {
+        List<StudentGraph.Edge> edges = source.getNeighbors(student);
+        int[] targets = new int[edges.size()];
+        int[] weights = new int[edges.size()];
+        int count = 0;
+        for (StudentGraph.Edge edge : edges) {
+            Integer j = ids.get(edge.neighbor);
+            if (j != null) {
+                targets[count] = j;
+                weights[count++] = edge.weight;
+            }
+        }
+        int id = students.size();
+        students.add(student);
+        ids.put(student, id);
+        arrivalTargets.add(Arrays.copyOf(targets, count));
+        arrivalWeights.add(Arrays.copyOf(weights, count));
+        if (id == podOf.length) {
+            int old = podOf.length;
+            podOf = Arrays.copyOf(podOf, old * 2);
+            Arrays.fill(podOf, old, podOf.length, -1);
+            laterTargets = Arrays.copyOf(laterTargets, podOf.length);
+            laterWeights = Arrays.copyOf(laterWeights, podOf.length);
+            laterCount = Arrays.copyOf(laterCount, podOf.length);
+        }
+        for (int e = 0; e < count; e++) {
+            int j = targets[e];
+            if (laterTargets[j] == null) {
+                laterTargets[j] = new int[4];
+                laterWeights[j] = new int[4];
+            } else if (laterCount[j] == laterTargets[j].length) {
+                laterTargets[j] = Arrays.copyOf(laterTargets[j], laterCount[j] * 2);
+                laterWeights[j] = Arrays.copyOf(laterWeights[j], laterCount[j] * 2);
+            }
+            laterTargets[j][laterCount[j]] = id;
+            laterWeights[j][laterCount[j]++] = weights[e];
+        }
+        return id;
+    }
+
+    private int newPod() {
+        if (podCount == members.length) {
+            int length = members.length * 2;
+            members = Arrays.copyOf(members, length);
+            fill = Arrays.copyOf(fill, length);
+            open = Arrays.copyOf(open, length);
+            openIndex = Arrays.copyOf(openIndex, length);
+        }
+        int p = podCount++;
+        members[p] = new int[podSize];
+        openIndex[p] = openCount;
+        open[openCount++] = p;
+        return p;
+    }
+
+    private void join(int id, int p) {
+        members[p][fill[p]++] = id;
+        podOf[id] = p;
+        if (fill[p] == podSize) {
+            int last = open[--openCount];
+            open[openIndex[p]] = last;
+            openIndex[last] = openIndex[p];
+        }
+    }
+
+    private void leave(int id) {
+        int p = podOf[id];
+        int[] pod = members[p];
+        for (int m = 0; m < fill[p]; m++) {
+            if (pod[m] == id) {
+                pod[m] = pod[--fill[p]];
+                break;
+            }
+        }
+        podOf[id] = -1;
+        if (fill[p] == podSize - 1) {
+            openIndex[p] = openCount;
+            open[openCount++] = p;
+        }
+    }
+
+    //adds the weight from a student to each pod into podWeight and returns the number of pods touched
+    private int collect(int id) {
+        if (podWeight.length < podCount) {
+            podWeight = new long[Math.max(podCount, podWeight.length * 2)];
+            touched = new int[podWeight.length];
+        }
+        int count;
+        if (id < graph.size()) {
+            count = collect(id, graph.targets(), graph.weights(), graph.offsets()[id], graph.offsets()[id + 1], 0);
+        } else {
+            int[] targets = arrivalTargets.get(id - graph.size());
+            count = collect(id, targets, arrivalWeights.get(id - graph.size()), 0, targets.length, 0);
+        }
+        if (laterCount[id] > 0) {
+            count = collect(id, laterTargets[id], laterWeights[id], 0, laterCount[id], count);
+        }
+        return count;
+    }
+
+    private int collect(int id, int[] targets, int[] weights, int from, int to, int count) {
+        for (int e = from; e < to; e++) {
+            int p = podOf[targets[e]];
+            if (p < 0 || targets[e] == id) {
+                continue;
+            }
+            if (podWeight[p] == 0) {
+                touched[count++] = p;
+            }
+            podWeight[p] += weights[e];
+        }
+        return count;
+    }
+
+    private void clear(int count) {
+        for (int t = 0; t < count; t++) {
+            podWeight[touched[t]] = 0;
+        }
+    }
+
+    //weight of the edges from a student to the students of one pod
+    private long weightTo(int id, int p) {
+        int count = collect(id);
+        long w = podWeight[p];
+        clear(count);
+        return w;
+    }
+
+    //weight of the edges between two students
+    private long edge(int id, int other) {
+        long w = 0;
+        if (id < graph.size()) {
+            w += edge(graph.targets(), graph.weights(), graph.offsets()[id], graph.offsets()[id + 1], other);
+        } else {
+            int[] targets = arrivalTargets.get(id - graph.size());
+            w += edge(targets, arrivalWeights.get(id - graph.size()), 0, targets.length, other);
+        }
+        if (laterCount[id] > 0) {
+            w += edge(laterTargets[id], laterWeights[id], 0, laterCount[id], other);
+        }
+        return w;
+    }
+
+    private static long edge(int[] targets, int[] weights, int from, int to, int other) {
+        long w = 0;
+        for (int e = from; e < to; e++) {
+            if (targets[e] == other) {
+                w += weights[e];
+            }
+        }
+        return w;
+    }
+
+    //revisits a batch of arrivals, one student per lock hold
+    private void rebalance(List<Integer> batch) {
+        long start = System.nanoTime();
+        long moves = 0;
+        for (int id : batch) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            synchronized (this) {
+                moves += improve(id);
+            }
+        }
+        synchronized (this) {
+            rebalances++;
+            rebalanceMoves += moves;
+            rebalanceNanos += System.nanoTime() - start;
+            rebalance = null;
+        }
+    }
+
+    //moves a student to the pod they are most connected to, or swaps them with one of its members, if that
+    //raises the intra-pod weight; returns the number of students moved
+    private int improve(int id) {
+        int own = podOf[id];
+        int count = collect(id);
+        int best = -1;
+        for (int t = 0; t < count; t++) {
+            int p = touched[t];
+            if (p != own && (best < 0 || podWeight[p] > podWeight[best])) {
+                best = p;
+            }
+        }
+        long toBest = best < 0 ? 0 : podWeight[best];
+        long toOwn = podWeight[own];
+        clear(count);
+        if (best < 0 || toBest <= toOwn) {
+            return 0;
+        }
+        if (fill[best] < podSize) {
+            leave(id);
+            join(id, best);
+            intraWeight += toBest - toOwn;
+            return 1;
+        }
+        //swap with the member of best that gives the largest gain; their shared edge stays between pods
+        long bestGain = 0;
+        int partner = -1;
+        for (int m = 0; m < fill[best]; m++) {
+            int other = members[best][m];
+            long shared = edge(id, other);
+            long gain = toBest - shared - toOwn + weightTo(other, own) - shared - weightTo(other, best);
+            if (gain > bestGain) {
+                bestGain = gain;
+                partner = other;
+            }
+        }
+        if (partner < 0) {
+            return 0;
+        }
+        leave(id);
+        leave(partner);
+        join(id, best);
+        join(partner, own);
+        intraWeight += bestGain;
+        return 2;
+    }
+}
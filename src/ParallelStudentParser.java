@@ -0,0 +1,135 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * ParallelStudentParser parses a student file on several threads.
+ * The file is cut into byte ranges, and every cut is moved forward to the next "Student:" line so that
+ * no entry is split. Each range is parsed on its own worker by a StudentRecordReader, which builds
+ * students the same way as UniversityStudent.fromMap, and the results are joined in file order.
+ * If entries are invalid, the error of the first one in the file is thrown, with the same message as
+ * DataParser.parseStudents plus the line number where the entry starts, whatever the thread timing.
+ */
+class ParallelStudentParser {
+    private static final long MIN_RANGE_SIZE = 1024 * 1024;
+
+    private final String filename;
+    private final int parallelism;
+
+    ParallelStudentParser(String filename, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.filename = filename;
+        this.parallelism = parallelism;
+    }
+
+    List<UniversityStudent> parse() throws IOException {
+        try (FileChannel channel = FileChannel.open(new File(filename).toPath())) {
+            long[] bounds = rangeBounds(channel);
+            int ranges = bounds.length - 1;
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, ranges));
+            try {
+                List<Future<RangeResult>> futures = new ArrayList<>();
+                for (int r = 0; r < ranges; r++) {
+                    long start = bounds[r];
+                    long end = bounds[r + 1];
+                    futures.add(executor.submit(() -> parseRange(channel, start, end)));
+                }
+
+                List<UniversityStudent> students = new ArrayList<>();
+                long linesBefore = 0;
+                for (Future<RangeResult> future : futures) {
+                    RangeResult result = join(future);
+                    if (result.error != null) {
+                        throw withLine(result.error, linesBefore + result.errorLine);
+                    }
+                    students.addAll(result.students);
+                    linesBefore += result.lines;
+                }
+                return students;
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    //cuts the file into about four ranges per thread, each starting at a "Student:" line (or the start of the file)
+    private long[] rangeBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long count = Math.max(1, Math.min(parallelism * 4L, size / MIN_RANGE_SIZE));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        for (long r = 1; r < count; r++) {
+            long cut = size * r / count;
+            if (cut <= bounds.get(bounds.size() - 1)) {
+                continue; // the previous range already extends past this cut
+            }
+            try (StudentRecordReader reader = new StudentRecordReader(channel, false, cut, size, 64 * 1024)) {
+                long aligned = reader.skipToNextHeader();
+                if (aligned > bounds.get(bounds.size() - 1) && aligned < size) {
+                    bounds.add(aligned);
+                }
+            }
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static RangeResult parseRange(FileChannel channel, long start, long end) throws IOException {
+        RangeResult result = new RangeResult();
+        int bufferSize = (int) Math.max(4096, Math.min(StudentRecordReader.DEFAULT_BUFFER_SIZE, end - start));
+        try (StudentRecordReader reader = new StudentRecordReader(channel, false, start, end, bufferSize)) {
+            try {
+                while (reader.hasNext()) {
+                    result.students.add(reader.next());
+                }
+            } catch (IllegalArgumentException e) {
+                //the range stops at its first error, like the sequential parser
+                result.error = e;
+                result.errorLine = reader.entryLine();
+            }
+            result.lines = reader.linesRead();
+        }
+        return result;
+    }
+
+    private static RangeResult join(Future<RangeResult> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing students.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    //same exception type and message, with the line number of the entry added
+    private static IllegalArgumentException withLine(IllegalArgumentException e, long line) {
+        String message = e.getMessage() + " (line " + line + ")";
+        IllegalArgumentException located = e instanceof NumberFormatException
+                ? new NumberFormatException(message) : new IllegalArgumentException(message);
+        located.initCause(e);
+        return located;
+    }
+
+    //students and first error of one byte range
+    private static class RangeResult {
+        final List<UniversityStudent> students = new ArrayList<>();
+        IllegalArgumentException error;
+        long errorLine;
+        long lines;
+    }
+}
@@ -1,11 +1,545 @@
 import java.util.*;
+import java.util.concurrent.*;
 
+/**
+ * PodFormation groups the students of a StudentGraph into pods of at most podSize students, keeping strongly
+ * connected students together.
+ *
+ * <p>{@link #formPods(int)} is a Louvain-style community detection with a size cap. Every level runs local
+ * moves: workers propose, in parallel and against a snapshot of the current communities, the neighboring
+ * community with the best modularity gain for each node; the proposals are then applied one by one, after
+ * checking the gain and the size cap again against the live state. When a pass moves less than 1% of the
+ * nodes, or after 8 passes, communities are collapsed into weighted super-nodes and the next level starts. The final communities are balanced into
+ * pods: the pairs of communities sharing the most weight are merged while they fit, and what is left is packed
+ * first-fit by decreasing size.</p>
+ *
+ * <p>{@link #formPodsGreedy(int)} is the simple baseline: start from the least connected unassigned student
+ * and fill the pod breadth-first through the strongest edges. Run after roommates are assigned, it gives
+ * the pods of the checkpoint two pod sample. {@link #intraPodWeight(List)} measures either
+ * result by the total weight of the edges that stay inside a pod.</p>
+ */
 public class PodFormation {
+    private static final int MAX_LEVELS = 16;
+    private static final int MAX_PASSES = 8;
+    private static final double MIN_GAIN = 1e-12;
+    private static final int MIN_MOVED_FRACTION = 100; // a pass moving under 1/100 of the nodes ends the level
+
+    private final StudentGraph source;
+    private final CompactStudentGraph graph;
+    private final int parallelism;
+
+    /**
+     * Constructor for PodFormation, using one worker per available processor.
+     * @param graph The graph of students to form pods from.
+     */
     public PodFormation(StudentGraph graph) {
-        // Constructor
+        this(graph, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for PodFormation.
+     * @param graph The graph of students to form pods from.
+     * @param parallelism Number of worker threads for the local-move phases.
+     */
+    public PodFormation(StudentGraph graph, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        this.source = graph;
+        this.graph = CompactStudentGraph.of(graph);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Forms pods with size-capped Louvain clustering followed by balancing.
+     * @param podSize The maximum number of students in a pod.
+     * @return The pods, each listing its students in graph order.
+     */
+    public List<List<UniversityStudent>> formPods(int podSize) {
+        checkPodSize(podSize);
+        int n = graph.size();
+        Level level = Level.of(graph);
+        int[] communityOf = new int[n]; // community of every student at the current level
+        for (int i = 0; i < n; i++) {
+            communityOf[i] = i;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (int l = 0; l < MAX_LEVELS; l++) {
+                int[] community = localMoves(level, podSize, executor);
+                int count = renumber(community);
+                if (count == level.size()) {
+                    break; // nothing moved
+                }
+                for (int i = 0; i < n; i++) {
+                    communityOf[i] = community[communityOf[i]];
+                }
+                level = level.aggregate(community, count);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        int[] podOf = balance(level, podSize);
+        List<List<UniversityStudent>> pods = new ArrayList<>();
+        int[] podIndex = new int[level.size()];
+        Arrays.fill(podIndex, -1);
+        for (int i = 0; i < n; i++) {
+            int pod = podOf[communityOf[i]];
+            if (podIndex[pod] < 0) {
+                podIndex[pod] = pods.size();
+                pods.add(new ArrayList<>());
+            }
+            pods.get(podIndex[pod]).add(graph.studentAt(i));
+        }
+        return pods;
+    }
+
+    /**
+     * Forms pods greedily: the least connected unassigned student (by total edge weight) starts a pod, which
+     * is filled breadth-first through the strongest edges, until it is full or no unassigned neighbor is left.
+     * @param podSize The maximum number of students in a pod.
+     * @return The pods, each listing its students in the order they joined.
+     */
+    public List<List<UniversityStudent>> formPodsGreedy(int podSize) {
+        checkPodSize(podSize);
+        int n = graph.size();
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights();
+        Integer[] bySeed = new Integer[n];
+        long[] strength = new long[n];
+        for (int i = 0; i < n; i++) {
+            bySeed[i] = i;
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                strength[i] += weights[e];
+            }
+        }
+        Arrays.sort(bySeed, Comparator.comparingLong(i -> strength[i]));
+        boolean[] assigned = new boolean[n];
+        List<List<UniversityStudent>> pods = new ArrayList<>();
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int seed : bySeed) {
+            if (assigned[seed]) {
+                continue;
+            }
+            List<UniversityStudent> pod = new ArrayList<>();
+            assigned[seed] = true;
+            pod.add(graph.studentAt(seed));
+            queue.add(seed);
+            while (!queue.isEmpty() && pod.size() < podSize) {
+                int u = queue.poll();
+                Integer[] edges = new Integer[offsets[u + 1] - offsets[u]];
+                for (int e = 0; e < edges.length; e++) {
+                    edges[e] = offsets[u] + e;
+                }
+                Arrays.sort(edges, (a, b) -> Integer.compare(weights[b], weights[a]));
+                for (int e : edges) {
+                    int v = targets[e];
+                    if (!assigned[v] && pod.size() < podSize) {
+                        assigned[v] = true;
+                        pod.add(graph.studentAt(v));
+                        queue.add(v);
+                    }
+                }
+            }
+            queue.clear();
+            pods.add(pod);
+        }
+        return pods;
+    }
+
+    /**
+     * Starts placing arriving students into already formed pods, rebalancing in the background once the
+     * students who could not join their best pod have missed 1% of the intra-pod weight.
+     * @param pods The pods formed from this graph, for example by {@link #formPods(int)}.
+     * @param podSize The maximum number of students in a pod.
+     * @return The online pods; close them to stop the rebalance thread.
+     */
+    public OnlinePods online(List<List<UniversityStudent>> pods, int podSize) {
+        return online(pods, podSize, 0.01);
+    }
+
+    /**
+     * Starts placing arriving students into already formed pods.
+     * Arriving students must be added to the graph this PodFormation was built from before they are placed.
+     * @param pods The pods formed from this graph, for example by {@link #formPods(int)}.
+     * @param podSize The maximum number of students in a pod.
+     * @param driftThreshold The weight missed by arrivals, as a fraction of the intra-pod weight, that
+     *                       starts a background rebalance.
+     * @return The online pods; close them to stop the rebalance thread.
+     */
+    public OnlinePods online(List<List<UniversityStudent>> pods, int podSize, double driftThreshold) {
+        return new OnlinePods(source, graph, pods, podSize, driftThreshold);
+    }
+
+    /**
+     * Returns the total weight of the edges whose two students are in the same pod, each edge counted once.
+     * @param pods The pods to measure.
+     * @return The intra-pod weight.
+     */
+    public long intraPodWeight(List<List<UniversityStudent>> pods) {
+        int[] podOf = new int[graph.size()];
+        Arrays.fill(podOf, -1);
+        for (int p = 0; p < pods.size(); p++) {
+            for (UniversityStudent s : pods.get(p)) {
+                podOf[graph.idOf(s)] = p;
+            }
+        }
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights();
+        long total = 0;
+        for (int i = 0; i < graph.size(); i++) {
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                if (targets[e] > i && podOf[i] >= 0 && podOf[i] == podOf[targets[e]]) {
+                    total += weights[e];
+                }
+            }
+        }
+        return total;
+    }
+
+    //prints the pods in the format of the pod sample output
+    public static void printPods(List<List<UniversityStudent>> pods) {
+        StringBuilder report = new StringBuilder("Pod Assignments:\n");
+        for (int p = 0; p < pods.size(); p++) {
+            report.append("  Pod ").append(p).append(": ");
+            for (UniversityStudent s : pods.get(p)) {
+                report.append(s.getName()).append(", ");
+            }
+            report.setLength(report.length() - 1);
+            report.append('\n');
+        }
+        System.out.print(report);
+    }
+
+    private static void checkPodSize(int podSize) {
+        if (podSize < 1) {
+            throw new IllegalArgumentException("Pod size must be at least 1: " + podSize);
+        }
+    }
+
+    //runs local-move passes on a level and returns the community of every node
+    private int[] localMoves(Level level, int cap, ExecutorService executor) {
+        int n = level.size();
+        int[] community = new int[n];
+        double[] total = new double[n]; // sum of the degrees of the nodes in each community
+        int[] size = new int[n]; // number of students in each community
+        for (int i = 0; i < n; i++) {
+            community[i] = i;
+            total[i] = level.degree[i];
+            size[i] = level.nodeSize[i];
+        }
+        int[] proposal = new int[n];
+        int chunks = Math.min(n, parallelism * 4);
+        //one scratch per worker thread and one for the apply step, reused by every pass of this level
+        ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(() -> new Scratch(n));
+        Scratch scratch = new Scratch(n);
+        for (int pass = 0; pass < MAX_PASSES && n > 0; pass++) {
+            //propose in parallel against the state at the start of the pass
+            List<Callable<Void>> tasks = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                int lo = (int) ((long) n * c / chunks);
+                int hi = (int) ((long) n * (c + 1) / chunks);
+                tasks.add(() -> {
+                    Scratch worker = scratches.get();
+                    for (int i = lo; i < hi; i++) {
+                        proposal[i] = bestCommunity(level, i, community, total, size, cap, worker);
+                    }
+                    return null;
+                });
+            }
+            invokeAll(executor, tasks);
+
+            //apply sequentially, checking the gain and the cap against the live state; a node whose proposal
+            //no longer holds waits for the next pass rather than settling for a worse community
+            int moved = 0;
+            for (int i = 0; i < n; i++) {
+                int target = proposal[i];
+                int own = community[i];
+                if (target == own || size[target] + level.nodeSize[i] > cap) {
+                    continue;
+                }
+                double k = level.degree[i];
+                scratch.collect(level, i, community);
+                double gainOwn = scratch.weight[own] - (total[own] - k) * k / level.totalWeight;
+                double gainTarget = scratch.weight[target] - total[target] * k / level.totalWeight;
+                scratch.clear();
+                if (gainTarget > gainOwn + MIN_GAIN) {
+                    community[i] = target;
+                    total[own] -= k;
+                    total[target] += k;
+                    size[own] -= level.nodeSize[i];
+                    size[target] += level.nodeSize[i];
+                    moved++;
+                }
+            }
+            if (moved * MIN_MOVED_FRACTION <= n) {
+                break; // the tail of a level moves few nodes for little gain
+            }
+        }
+        return community;
+    }
+
+    //best community for node i by modularity gain among its neighbors' communities that have room for it
+    private static int bestCommunity(Level level, int i, int[] community, double[] total, int[] size, int cap,
+                                     Scratch scratch) {
+        int own = community[i];
+        double k = level.degree[i];
+        scratch.collect(level, i, community);
+        double best = scratch.weight[own] - (total[own] - k) * k / level.totalWeight;
+        int bestCommunity = own;
+        for (int t = 0; t < scratch.count; t++) {
+            int c = scratch.touched[t];
+            if (c == own || size[c] + level.nodeSize[i] > cap) {
+                continue;
+            }
+            double gain = scratch.weight[c] - total[c] * k / level.totalWeight;
+            if (gain > best + MIN_GAIN) {
+                best = gain;
+                bestCommunity = c;
+            }
+        }
+        scratch.clear();
+        return bestCommunity;
+    }
+
+    private static void invokeAll(ExecutorService executor, List<Callable<Void>> tasks) {
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while forming pods.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    //renumbers communities to 0..count-1 in order of first appearance and returns count
+    private static int renumber(int[] community) {
+        int[] ids = new int[community.length];
+        Arrays.fill(ids, -1);
+        int count = 0;
+        for (int i = 0; i < community.length; i++) {
+            int c = community[i];
+            if (ids[c] < 0) {
+                ids[c] = count++;
+            }
+            community[i] = ids[c];
+        }
+        return count;
+    }
+
+    //merges the communities sharing the most weight while they fit in a pod, then packs the rest by size
+    private static int[] balance(Level level, int cap) {
+        int n = level.size();
+        int[] parent = new int[n];
+        int[] size = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+            size[i] = level.nodeSize[i];
+        }
+        //weights are sums of integer edge weights, so a pair sorts as one long: weight high, edge index low
+        long[] pairs = new long[level.targets.length];
+        int[] source = new int[level.targets.length];
+        int count = 0;
+        for (int a = 0; a < n; a++) {
+            for (int e = level.offsets[a]; e < level.offsets[a + 1]; e++) {
+                source[e] = a;
+                if (level.targets[e] > a) {
+                    pairs[count++] = (long) level.weights[e] << 32 | e;
+                }
+            }
+        }
+        Arrays.sort(pairs, 0, count);
+        for (int p = count - 1; p >= 0; p--) {
+            int e = (int) pairs[p];
+            int a = find(parent, source[e]);
+            int b = find(parent, level.targets[e]);
+            if (a != b && size[a] + size[b] <= cap) {
+                parent[b] = a;
+                size[a] += size[b];
+            }
+        }
+        //first-fit decreasing over the merged groups
+        List<Integer> groups = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (find(parent, i) == i) {
+                groups.add(i);
+            }
+        }
+        groups.sort((x, y) -> Integer.compare(size[y], size[x]));
+        int[] podOfGroup = new int[n];
+        List<Integer> podFill = new ArrayList<>();
+        TreeMap<Integer, ArrayDeque<Integer>> byRoom = new TreeMap<>(); // free room -> pods with that much room
+        for (int g : groups) {
+            Map.Entry<Integer, ArrayDeque<Integer>> fit = byRoom.ceilingEntry(size[g]);
+            int pod;
+            if (fit == null) {
+                pod = podFill.size();
+                podFill.add(0);
+            } else {
+                pod = fit.getValue().poll();
+                if (fit.getValue().isEmpty()) {
+                    byRoom.remove(fit.getKey());
+                }
+            }
+            podFill.set(pod, podFill.get(pod) + size[g]);
+            int room = cap - podFill.get(pod);
+            if (room > 0) {
+                byRoom.computeIfAbsent(room, r -> new ArrayDeque<>()).add(pod);
+            }
+            podOfGroup[g] = pod;
+        }
+        int[] podOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            podOf[i] = podOfGroup[find(parent, i)];
+        }
+        return podOf;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    //per-worker accumulator of the weight from one node to each neighboring community
+    private static class Scratch {
+        final double[] weight;
+        final int[] touched;
+        int count;
+
+        Scratch(int n) {
+            weight = new double[n];
+            touched = new int[n];
+        }
+
+        void collect(Level level, int i, int[] community) {
+            for (int e = level.offsets[i]; e < level.offsets[i + 1]; e++) {
+                int j = level.targets[e];
+                if (j == i) {
+                    continue; // a self-loop stays with the node wherever it goes
+                }
+                int c = community[j];
+                if (weight[c] == 0) {
+                    touched[count++] = c;
+                }
+                weight[c] += level.weights[e];
+            }
+        }
+
+        void clear() {
+            for (int t = 0; t < count; t++) {
+                weight[touched[t]] = 0;
+            }
+            count = 0;
+        }
     }
 
-    public void formPods(int podSize) {
-        // Method signature only
+    /**
+     * Level is the weighted graph one clustering level works on: students at the first level, communities
+     * of the previous level after that. A node's size is its number of students, and a self-loop holds twice
+     * the weight inside the node, so degrees and the total weight are the same at every level.
+     */
+    private static class Level {
+        final int[] offsets;
+        final int[] targets;
+        final double[] weights;
+        final double[] degree;
+        final int[] nodeSize;
+        final double totalWeight; // sum of all degrees, 2m
+
+        Level(int[] offsets, int[] targets, double[] weights, int[] nodeSize) {
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+            this.nodeSize = nodeSize;
+            int n = nodeSize.length;
+            degree = new double[n];
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                    degree[i] += weights[e];
+                }
+                sum += degree[i];
+            }
+            totalWeight = sum > 0 ? sum : 1;
+        }
+
+        static Level of(CompactStudentGraph graph) {
+            int[] weights = graph.weights();
+            double[] w = new double[weights.length];
+            for (int e = 0; e < weights.length; e++) {
+                w[e] = weights[e];
+            }
+            int[] nodeSize = new int[graph.size()];
+            Arrays.fill(nodeSize, 1);
+            return new Level(graph.offsets(), graph.targets(), w, nodeSize);
+        }
+
+        int size() {
+            return nodeSize.length;
+        }
+
+        //collapses every community into one node, summing the weights between communities
+        Level aggregate(int[] community, int count) {
+            int n = size();
+            int[] nodeSize = new int[count];
+            int[] memberOffsets = new int[count + 1];
+            for (int i = 0; i < n; i++) {
+                nodeSize[community[i]] += this.nodeSize[i];
+                memberOffsets[community[i] + 1]++;
+            }
+            for (int c = 0; c < count; c++) {
+                memberOffsets[c + 1] += memberOffsets[c];
+            }
+            int[] members = new int[n];
+            int[] fill = Arrays.copyOf(memberOffsets, count);
+            for (int i = 0; i < n; i++) {
+                members[fill[community[i]]++] = i;
+            }
+            int[] offsets = new int[count + 1];
+            int[] targets = new int[Math.max(1, this.targets.length)];
+            double[] weights = new double[targets.length];
+            double[] sum = new double[count];
+            int[] touched = new int[count];
+            boolean[] seen = new boolean[count];
+            int edges = 0;
+            for (int c = 0; c < count; c++) {
+                int touchedCount = 0;
+                for (int m = memberOffsets[c]; m < memberOffsets[c + 1]; m++) {
+                    int i = members[m];
+                    for (int e = this.offsets[i]; e < this.offsets[i + 1]; e++) {
+                        int d = community[this.targets[e]];
+                        if (!seen[d]) {
+                            seen[d] = true;
+                            touched[touchedCount++] = d;
+                        }
+                        sum[d] += this.weights[e];
+                    }
+                }
+                for (int t = 0; t < touchedCount; t++) {
+                    int d = touched[t];
+                    targets[edges] = d;
+                    weights[edges++] = sum[d];
+                    sum[d] = 0;
+                    seen[d] = false;
+                }
+                offsets[c + 1] = edges;
+            }
+            return new Level(offsets, Arrays.copyOf(targets, edges), Arrays.copyOf(weights, edges), nodeSize);
+        }
     }
 }
@@ -0,0 +1,85 @@
+import java.util.*;
+
+/**
+ * PointToPointSearch answers student-to-student referral queries with bidirectional Dijkstra.
+ * A forward search from the start and a backward search from the target run in turn, and the
+ * search stops once the two frontiers prove that no shorter path can exist.
+ * With landmarks, both searches are guided by the average ALT potential
+ * {@code (bound(v, t) - bound(s, v)) / 2}, which stays consistent for both directions, so the
+ * results are still exact while far fewer nodes are settled on large sparse graphs.
+ * A search is not thread-safe; use one per thread.
+ */
+class PointToPointSearch {
+    private final CompactStudentGraph graph;
+    private final DijkstraEngine forward;
+    private final DijkstraEngine backward;
+
+    PointToPointSearch(CompactStudentGraph graph) {
+        this.graph = graph;
+        this.forward = new DijkstraEngine(graph);
+        this.backward = new DijkstraEngine(graph);
+    }
+
+    CompactStudentGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Finds the cheapest path between two students.
+     * @param source ID of the starting student.
+     * @param target ID of the target student.
+     * @param landmarks Landmarks to guide the search, or null for plain bidirectional Dijkstra.
+     * @return The route, with the number of nodes settled by both searches.
+     */
+    ReferralRoute search(int source, int target, ReferralLandmarks landmarks) {
+        if (landmarks != null && landmarks.size() > 0) {
+            forward.setPotential(v -> (landmarks.lowerBound(v, target) - landmarks.lowerBound(source, v)) / 2);
+            backward.setPotential(v -> (landmarks.lowerBound(source, v) - landmarks.lowerBound(v, target)) / 2);
+        } else {
+            forward.setPotential(null);
+            backward.setPotential(null);
+        }
+        forward.reset();
+        backward.reset();
+        forward.seed(source, 0.0);
+        backward.seed(target, 0.0);
+
+        double best = source == target ? 0.0 : Double.POSITIVE_INFINITY;
+        int meetFrom = source == target ? source : -1;
+        int meetTo = meetFrom;
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights();
+        //keys include the potentials, and with p_backward = -p_forward their sum bounds every unseen path
+        while (forward.hasNext() && backward.hasNext() && forward.minKey() + backward.minKey() < best) {
+            boolean fromStart = forward.minKey() <= backward.minKey();
+            DijkstraEngine side = fromStart ? forward : backward;
+            DijkstraEngine other = fromStart ? backward : forward;
+            int u = side.settleNext();
+            double du = side.distance(u);
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                if (other.isReached(v)) {
+                    double length = du + 1.0 / weights[e] + other.distance(v);
+                    if (length < best) {
+                        best = length;
+                        meetFrom = fromStart ? u : v;
+                        meetTo = fromStart ? v : u;
+                    }
+                }
+            }
+        }
+
+        int settled = forward.settledCount() + backward.settledCount();
+        if (meetFrom < 0) {
+            return new ReferralRoute(new ArrayList<>(), Double.POSITIVE_INFINITY, settled);
+        }
+        List<UniversityStudent> path = forward.pathTo(meetFrom);
+        if (meetTo != meetFrom) {
+            for (int cur = meetTo; cur >= 0; cur = backward.predecessor(cur)) {
+                path.add(graph.studentAt(cur));
+            }
+        }
+        return new ReferralRoute(path, best, settled);
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.*;
+
+/**
+ * ReferralLandmarks holds the precomputed distances from a few landmark students to every student,
+ * used for ALT (A*, landmarks, triangle inequality) lower bounds in point-to-point referral queries.
+ * By the triangle inequality, |d(L, v) - d(L, t)| never exceeds d(v, t) on an undirected graph.
+ * Landmarks are picked greedily as the student farthest from the ones already chosen, and a student
+ * in a component no landmark reaches yet is always preferred, so every component gets covered.
+ */
+public class ReferralLandmarks {
+    private final int requested;
+    private final int[] landmarks;
+    private final double[][] distances;
+
+    /**
+     * Constructor for ReferralLandmarks. Runs one full Dijkstra per landmark.
+     * @param graph The graph to precompute landmark distances for.
+     * @param count The number of landmarks to pick.
+     */
+    public ReferralLandmarks(CompactStudentGraph graph, int count) {
+        this.requested = count;
+        int n = graph.size();
+        List<Integer> chosen = new ArrayList<>();
+        List<double[]> chosenDistances = new ArrayList<>();
+        DijkstraEngine engine = new DijkstraEngine(graph);
+        //distance from each node to its closest landmark so far, infinity while no landmark reaches it
+        double[] closest = new double[n];
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+
+        int next = n > 0 ? 0 : -1;
+        while (next >= 0 && chosen.size() < count) {
+            double[] d = new double[n];
+            Arrays.fill(d, Double.POSITIVE_INFINITY);
+            engine.reset();
+            engine.seed(next, 0.0);
+            while (engine.hasNext()) {
+                int u = engine.settleNext();
+                d[u] = engine.distance(u);
+            }
+            chosen.add(next);
+            chosenDistances.add(d);
+
+            next = -1;
+            for (int v = 0; v < n; v++) {
+                closest[v] = Math.min(closest[v], d[v]);
+                if (closest[v] > 0.0 && (next < 0 || closest[v] > closest[next])) {
+                    next = v;
+                }
+            }
+        }
+        this.landmarks = chosen.stream().mapToInt(Integer::intValue).toArray();
+        this.distances = chosenDistances.toArray(new double[0][]);
+    }
+
+    //number of landmarks, which is smaller than the requested count on tiny graphs
+    public int size() {
+        return landmarks.length;
+    }
+
+    //number of landmarks that was asked for
+    int requested() {
+        return requested;
+    }
+
+    //returns a lower bound on the referral distance between the students with the given IDs
+    double lowerBound(int from, int to) {
+        double bound = 0.0;
+        for (double[] d : distances) {
+            double a = d[from];
+            double b = d[to];
+            if (a != Double.POSITIVE_INFINITY && b != Double.POSITIVE_INFINITY) {
+                bound = Math.max(bound, Math.abs(a - b));
+            }
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,170 @@
+import java.util.*;
+
+/**
+ * ReferralPathCache is a bounded cache in front of a ReferralPathFinder.
+ * Results are keyed by the starting student itself, by identity, and the case-folded company name, so
+ * students who share a name never see each other's paths. They are evicted in
+ * least-recently-used order once the cache is full, and optionally expired after a time-to-live.
+ * Every entry remembers the graph version it was computed for, and the whole cache is dropped as soon
+ * as the graph is mutated, so a cached path is never older than the graph.
+ * The cache is thread-safe; lookups of different keys can be computed concurrently.
+ */
+public class ReferralPathCache {
+    private final ReferralPathFinder finder;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<Key, CachedPath> entries;
+    private long version;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Constructor for ReferralPathCache without expiry.
+     * @param finder The finder to compute missing paths with.
+     * @param maxEntries The maximum number of cached paths.
+     */
+    public ReferralPathCache(ReferralPathFinder finder, int maxEntries) {
+        this(finder, maxEntries, 0);
+    }
+
+    /**
+     * Constructor for ReferralPathCache.
+     * @param finder The finder to compute missing paths with.
+     * @param maxEntries The maximum number of cached paths.
+     * @param ttlMillis How long a path stays valid in milliseconds, or 0 to never expire.
+     */
+    public ReferralPathCache(ReferralPathFinder finder, int maxEntries, long ttlMillis) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache must hold at least one entry: " + maxEntries);
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("TTL cannot be negative: " + ttlMillis);
+        }
+        this.finder = finder;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.version = finder.getGraph().getVersion();
+        this.entries = new LinkedHashMap<Key, CachedPath>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CachedPath> eldest) {
+                if (size() > ReferralPathCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the referral path from a starting student to a target company, computing it on a miss.
+     * @param start The starting student.
+     * @param targetCompany The target company for the internship.
+     * @return A list of UniversityStudent objects representing the referral path.
+     */
+    public List<UniversityStudent> findReferralPath(UniversityStudent start, String targetCompany) {
+        Key key = new Key(start, targetCompany == null ? null : CompanyIndex.fold(targetCompany));
+        long graphVersion = finder.getGraph().getVersion();
+        synchronized (this) {
+            invalidateIfChanged(graphVersion);
+            CachedPath cached = entries.get(key);
+            if (cached != null && (ttlNanos == 0 || System.nanoTime() - cached.createdAt < ttlNanos)) {
+                hits++;
+                return new ArrayList<>(cached.path);
+            }
+            if (cached != null) {
+                entries.remove(key); // expired
+            }
+            misses++;
+        }
+
+        List<UniversityStudent> path = finder.findReferralPath(start, targetCompany);
+        synchronized (this) {
+            //only keep the result if the graph did not change while it was being computed
+            if (finder.getGraph().getVersion() == graphVersion) {
+                invalidateIfChanged(graphVersion);
+                entries.put(key, new CachedPath(Collections.unmodifiableList(new ArrayList<>(path)), System.nanoTime()));
+            }
+        }
+        return path;
+    }
+
+    private void invalidateIfChanged(long graphVersion) {
+        if (graphVersion != version) {
+            entries.clear();
+            version = graphVersion;
+            invalidations++;
+        }
+    }
+
+    //removes every cached path
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    //number of paths currently cached
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    //number of paths dropped because the cache was full
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    //number of times the cache was dropped because the graph changed
+    public synchronized long getInvalidations() {
+        return invalidations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ReferralPathCache{size=" + entries.size() + ", hits=" + hits + ", misses=" + misses
+                + ", evictions=" + evictions + ", invalidations=" + invalidations + "}";
+    }
+
+    //cache key: starting student, compared by identity, and case-folded company
+    private static class Key {
+        final UniversityStudent start;
+        final String company;
+
+        Key(UniversityStudent start, String company) {
+            this.start = start;
+            this.company = company;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return start == k.start && Objects.equals(company, k.company);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(start) + Objects.hashCode(company);
+        }
+    }
+
+    private static class CachedPath {
+        final List<UniversityStudent> path;
+        final long createdAt;
+
+        CachedPath(List<UniversityStudent> path, long createdAt) {
+            this.path = path;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -1,12 +1,17 @@
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * RefferralPathFinder class implements Dijkstra's algorithm to find the shortest referral path
  * from a starting student to a target company.
  * It uses a graph representation of the student network to find the optimal path.
+ * Searches borrow their scratch engines from a small pool kept with the current graph view, at most one
+ * idle engine per processor, so many short-lived threads do not each pin an engine sized to the graph.
  */
 public class ReferralPathFinder {
     private StudentGraph graph; // Graph representing the student network
+    private volatile GraphView view; // CSR copy of the graph and its company index, rebuilt when the graph changes
+    private volatile int landmarkCount; // number of ALT landmarks for point-to-point queries, 0 to disable
     
     /**
      * Constructor for ReferralPathFinder.
@@ -17,67 +22,218 @@ public class ReferralPathFinder {
         this.graph = graph;
     }
 
+    //returns the graph this finder searches
+    public StudentGraph getGraph() {
+        return graph;
+    }
+
     /**
      * Finds the referral path from a starting student to a target company using Dijkstra's algorithm.
+     * Stronger connections are shorter: an edge of connection strength w costs 1/w.
      * @param start The starting student.
      * @param targetCompany The target company for the internship.
      * @return A list of UniversityStudent objects representing the referral path.
      */
     public List<UniversityStudent> findReferralPath(UniversityStudent start, String targetCompany) {
-        // Method signature only
-        Map<UniversityStudent, Double> dist = new HashMap<>();
-        Map<UniversityStudent, UniversityStudent> prev = new HashMap<>();
-        Set<UniversityStudent> visited = new HashSet<>();
-
-        //Initialize distances to infinity
-        for (UniversityStudent s : graph.getAllNodes()){
-            dist.put(s, Double.MAX_VALUE);
-            prev.put(s, null);
-        }
-        dist.put(start, 0.0); // Distance to start is 0
-
-        // Priority queue for Dijkstra's algorithm
-        PriorityQueue<UniversityStudent> pq = new PriorityQueue<>(Comparator.comparingDouble(dist::get));
-        pq.add(start);
-
-        while(!pq.isEmpty()){
-            UniversityStudent u = pq.poll();
-            if(visited.contains(u)) {
-                continue; // Skip if already visited
-            }
-            visited.add(u);
-
-            for (String internship : u.previousInternships) {
-                if (internship.equalsIgnoreCase(targetCompany)) {
-                    // Reconstruct the path from start to u
-                    List<UniversityStudent> path = new ArrayList<>();
-                    UniversityStudent cur = u;
-                    while(cur != null) {
-                        path.add(cur);
-                        cur = prev.get(cur);
-                    }
-                    Collections.reverse(path); // Reverse the path to get the correct order
-                    return path;
+        GraphView v = view();
+        int source = v.graph.idOf(start);
+        int company = v.companies.companyId(targetCompany);
+        if (source < 0 || company < 0) {
+            return new ArrayList<>(); // nobody interned there, no need to explore
+        }
+
+        DijkstraEngine engine = v.borrowEngine();
+        try {
+            engine.reset();
+            engine.seed(source, 0.0);
+            while (engine.hasNext()) {
+                int u = engine.settleNext();
+                if (v.companies.internedAt(u, company)) {
+                    return engine.pathTo(u);
                 }
             }
+        } finally {
+            v.engines.offer(engine);
+        }
 
-            // Relaxation for neighbors
-            for (StudentGraph.Edge edge : graph.getNeighbors(u)){
-                UniversityStudent v = edge.neighbor;
-                if (visited.contains(v)) {
-                    continue; // Skip if already visited
-                }
+        return new ArrayList<>();
+    }
 
-                double newDist = dist.get(u) + (1.0 / edge.weight); // Assuming weight is the connection strength
-                if (newDist < dist.get(v)) {
-                    dist.put(v, newDist);
-                    prev.put(v, u);
-                    pq.add(v); // Add to priority queue for further exploration
+    /**
+     * Finds the best referral path to a target company for every student at once.
+     * Instead of one search per student, a single Dijkstra is seeded from every student who interned
+     * at the company and run backwards over the undirected graph with the same 1/weight costs, so each
+     * student's distance and next hop come out of one pass.
+     * @param targetCompany The target company for the internship.
+     * @return The best referral path from every student in the graph.
+     */
+    public CompanyReferralPaths findReferralPathsToCompany(String targetCompany) {
+        GraphView v = view();
+        DijkstraEngine engine = v.borrowEngine();
+        try {
+            return reverseSearch(v, engine, targetCompany);
+        } finally {
+            v.engines.offer(engine);
+        }
+    }
+
+    /**
+     * Finds the k cheapest distinct referral paths from a starting student to a target company, using
+     * Yen's algorithm over the 1/weight costs. Each path ends at the first student on it who interned there.
+     * One backward search from the company gives the exact distance to it from every student, and every
+     * spur search reuses it as an A* heuristic, so the spur searches settle few nodes instead of each
+     * running a full Dijkstra. At most k candidate paths are kept in memory at any time.
+     * @param start The starting student.
+     * @param targetCompany The target company for the internship.
+     * @param k The number of paths to return.
+     * @return Up to k routes in order of increasing cost.
+     */
+    public List<ReferralRoute> findTopReferralPaths(UniversityStudent start, String targetCompany, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1: " + k);
+        }
+        GraphView v = view();
+        int source = v.graph.idOf(start);
+        int company = v.companies.companyId(targetCompany);
+        if (source < 0 || company < 0) {
+            return new ArrayList<>();
+        }
+        DijkstraEngine engine = v.borrowEngine();
+        try {
+            CompanyReferralPaths toCompany = reverseSearch(v, engine, targetCompany);
+            int reverseSettled = engine.settledCount();
+            return new KShortestReferralPaths(engine, toCompany, v.companies, company)
+                    .find(source, k, reverseSettled);
+        } finally {
+            engine.setPotential(null);
+            engine.setEdgeFilter(null);
+            v.engines.offer(engine);
+        }
+    }
+
+    //runs one Dijkstra seeded from every student who interned at the company
+    private CompanyReferralPaths reverseSearch(GraphView v, DijkstraEngine engine, String targetCompany) {
+        int n = v.graph.size();
+        double[] distance = new double[n];
+        int[] nextHop = new int[n];
+        Arrays.fill(distance, Double.POSITIVE_INFINITY);
+        Arrays.fill(nextHop, -1);
+        int company = v.companies.companyId(targetCompany);
+        if (company < 0) {
+            return new CompanyReferralPaths(v.graph, targetCompany, distance, nextHop);
+        }
+
+        engine.reset();
+        for (int t : v.companies.studentsAt(company)) {
+            engine.seed(t, 0.0);
+        }
+        while (engine.hasNext()) {
+            int u = engine.settleNext();
+            distance[u] = engine.distance(u);
+            nextHop[u] = engine.predecessor(u); // searching from the targets, the predecessor is the next hop towards one
+        }
+        return new CompanyReferralPaths(v.graph, targetCompany, distance, nextHop);
+    }
+
+    /**
+     * Enables landmark (ALT) lower bounds for point-to-point queries.
+     * The landmark distances are precomputed once per graph version, with one full Dijkstra per landmark.
+     * @param count The number of landmarks to use, or 0 to go back to plain bidirectional Dijkstra.
+     */
+    public void useLandmarks(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Landmark count cannot be negative: " + count);
+        }
+        landmarkCount = count;
+        view().landmarks(count); // precompute now rather than on the first query
+    }
+
+    /**
+     * Finds the strongest introduction chain between two students with bidirectional Dijkstra,
+     * guided by landmark lower bounds if {@link #useLandmarks(int)} was called.
+     * @param start The starting student.
+     * @param target The student to be introduced to.
+     * @return The route, including the number of nodes settled to find it.
+     */
+    public ReferralRoute findIntroductionPath(UniversityStudent start, UniversityStudent target) {
+        GraphView v = view();
+        int source = v.graph.idOf(start);
+        int destination = v.graph.idOf(target);
+        if (source < 0 || destination < 0) {
+            return new ReferralRoute(new ArrayList<>(), Double.POSITIVE_INFINITY, 0);
+        }
+        ReferralLandmarks landmarks = v.landmarks(landmarkCount);
+        PointToPointSearch search = v.borrowPointSearch();
+        try {
+            return search.search(source, destination, landmarks);
+        } finally {
+            v.pointSearches.offer(search);
+        }
+    }
+
+    //returns the current view, rebuilding it if the graph has changed since it was made
+    private GraphView view() {
+        long version = graph.getVersion();
+        GraphView v = view;
+        if (v == null || v.version != version) {
+            synchronized (this) {
+                v = view;
+                if (v == null || v.version != version) {
+                    v = new GraphView(CompactStudentGraph.of(graph), version);
+                    view = v;
                 }
             }
         }
-        
+        return v;
+    }
 
-        return new ArrayList<>();
+    //immutable search structures built once per graph version, and the idle engines searching them;
+    //an engine is returned with offer, which drops it when the pool is full
+    private static class GraphView {
+        final CompactStudentGraph graph;
+        final CompanyIndex companies;
+        final long version;
+        final ArrayBlockingQueue<DijkstraEngine> engines;
+        final ArrayBlockingQueue<PointToPointSearch> pointSearches;
+        private volatile ReferralLandmarks landmarks;
+
+        GraphView(CompactStudentGraph graph, long version) {
+            this.graph = graph;
+            this.companies = new CompanyIndex(graph);
+            this.version = version;
+            int idle = Runtime.getRuntime().availableProcessors();
+            this.engines = new ArrayBlockingQueue<>(idle);
+            this.pointSearches = new ArrayBlockingQueue<>(idle);
+        }
+
+        //takes an idle engine, or creates one if every pooled engine is in use
+        DijkstraEngine borrowEngine() {
+            DijkstraEngine engine = engines.poll();
+            return engine != null ? engine : new DijkstraEngine(graph);
+        }
+
+        //takes an idle point-to-point search, or creates one if every pooled search is in use
+        PointToPointSearch borrowPointSearch() {
+            PointToPointSearch search = pointSearches.poll();
+            return search != null ? search : new PointToPointSearch(graph);
+        }
+
+        //returns landmarks with the given count, computing them the first time they are needed
+        ReferralLandmarks landmarks(int count) {
+            if (count == 0) {
+                return null;
+            }
+            ReferralLandmarks l = landmarks;
+            if (l == null || l.requested() != count) {
+                synchronized (this) {
+                    l = landmarks;
+                    if (l == null || l.requested() != count) {
+                        l = new ReferralLandmarks(graph, count);
+                        landmarks = l;
+                    }
+                }
+            }
+            return l;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,43 @@
+import java.util.*;
+
+/**
+ * ReferralRoute is the result of a point-to-point referral query.
+ * It holds the path, its total cost under the 1/weight cost model, and the number of nodes the search
+ * settled to find it, which shows how much of the graph the query had to explore.
+ */
+public class ReferralRoute {
+    private final List<UniversityStudent> path;
+    private final double cost;
+    private final int settledNodes;
+
+    ReferralRoute(List<UniversityStudent> path, double cost, int settledNodes) {
+        this.path = Collections.unmodifiableList(path);
+        this.cost = cost;
+        this.settledNodes = settledNodes;
+    }
+
+    //returns the students from the start to the target, or an empty list if there is no path
+    public List<UniversityStudent> getPath() {
+        return path;
+    }
+
+    //returns the total cost of the path, or infinity if there is no path
+    public double getCost() {
+        return cost;
+    }
+
+    //returns the number of nodes settled by the search
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    public boolean isFound() {
+        return !path.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "ReferralRoute{path=" + path.stream().map(UniversityStudent::getName).toList()
+                + ", cost=" + cost + ", settledNodes=" + settledNodes + "}";
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.*;
+
+/**
+ * ShardedMatching is the result of a roommate matching run separately on each shard of a cohort, for example
+ * one shard per gender and year. It holds the merged {@link Matching} over the whole input list, and the
+ * size, outcome and latency of every shard, so a slow or unstable shard can be told apart from the rest.
+ */
+public class ShardedMatching {
+    /**
+     * Shard describes the matching of one shard.
+     */
+    public static class Shard {
+        private final Object key;
+        private final int size;
+        private final int pairs;
+        private final boolean stable;
+        private final long nanos;
+
+        Shard(Object key, int size, int pairs, boolean stable, long nanos) {
+            this.key = key;
+            this.size = size;
+            this.pairs = pairs;
+            this.stable = stable;
+            this.nanos = nanos;
+        }
+
+        //the shard key shared by the students of the shard
+        public Object getKey() {
+            return key;
+        }
+
+        //number of students in the shard
+        public int size() {
+            return size;
+        }
+
+        //number of pairs formed in the shard
+        public int getPairCount() {
+            return pairs;
+        }
+
+        //whether the shard's matching is stable
+        public boolean isStable() {
+            return stable;
+        }
+
+        //time spent matching the shard, in nanoseconds
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return key + ": " + size + " students, " + pairs + " pairs, " + (stable ? "stable" : "not stable")
+                    + ", " + String.format("%.2f ms", nanos / 1e6);
+        }
+    }
+
+    private final Matching matching;
+    private final List<Shard> shards;
+    private final long nanos;
+
+    ShardedMatching(Matching matching, List<Shard> shards, long nanos) {
+        this.matching = matching;
+        this.shards = Collections.unmodifiableList(shards);
+        this.nanos = nanos;
+    }
+
+    //returns the merged matching over the whole input list, stable only if every shard is
+    public Matching getMatching() {
+        return matching;
+    }
+
+    //returns the shards, in the order their keys first appear in the input
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    //returns the shard that took the longest to match, or null if there are none
+    public Shard slowestShard() {
+        Shard slowest = null;
+        for (Shard shard : shards) {
+            if (slowest == null || shard.nanos > slowest.nanos) {
+                slowest = shard;
+            }
+        }
+        return slowest;
+    }
+
+    //wall-clock time of the whole sharded matching, in nanoseconds
+    public long getNanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,94 @@
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.*;
+
+/**
+ * SocialExecutors creates the executors that run social actions such as {@link ChatThread} and
+ * {@link FriendRequestThread}, either one virtual thread per task or a fixed pool of platform threads.
+ *
+ * <p>Virtual threads are looked up by reflection, so the code still compiles and runs on Java 17, where they
+ * do not exist; AUTO then falls back to a fixed pool. The social-action layer blocks only through
+ * java.util.concurrent locks and parking, never inside a synchronized block, so virtual threads running it
+ * do not pin their carrier threads.</p>
+ *
+ * <p>The mode and pool size can be chosen with the system properties {@value #MODE_PROPERTY} (virtual,
+ * fixed or auto) and {@value #THREADS_PROPERTY}.</p>
+ */
+public class SocialExecutors {
+    public static final String MODE_PROPERTY = "social.executor";
+    public static final String THREADS_PROPERTY = "social.threads";
+
+    /**
+     * How social actions are run.
+     */
+    public enum Mode {
+        VIRTUAL, // one virtual thread per task; fails where virtual threads are not available
+        FIXED,   // a fixed pool of platform threads
+        AUTO     // virtual threads where available, a fixed pool otherwise
+    }
+
+    private static final Method VIRTUAL_EXECUTOR = virtualExecutorFactory();
+
+    private SocialExecutors() {
+    }
+
+    private static Method virtualExecutorFactory() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) factory.invoke(null)).shutdown(); // fails if virtual threads are a disabled preview
+            return factory;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    //whether this runtime can run tasks on virtual threads
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor configured by the system properties, AUTO with one thread per available processor
+     * by default.
+     * @return The executor; shut it down when done.
+     * @throws IllegalArgumentException If a property has a value that is not understood.
+     */
+    public static ExecutorService fromConfiguration() {
+        String mode = System.getProperty(MODE_PROPERTY, "auto").trim();
+        String threads = System.getProperty(THREADS_PROPERTY);
+        try {
+            return create(Mode.valueOf(mode.toUpperCase(Locale.ROOT)), threads == null
+                    ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads.trim()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid executor configuration " + MODE_PROPERTY + "=" + mode
+                    + ", " + THREADS_PROPERTY + "=" + threads
+                    + "; expected virtual, fixed or auto, and a positive thread count.", e);
+        }
+    }
+
+    /**
+     * Creates an executor for social actions.
+     * @param mode How tasks are run.
+     * @param threads The pool size when the tasks run on a fixed pool.
+     * @return The executor; shut it down when done.
+     * @throws UnsupportedOperationException If mode is VIRTUAL and virtual threads are not available.
+     */
+    public static ExecutorService create(Mode mode, int threads) {
+        if (mode != Mode.FIXED && virtualThreadsAvailable()) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new IllegalStateException("Cannot create a virtual thread executor.", e);
+            }
+        }
+        if (mode == Mode.VIRTUAL) {
+            throw new UnsupportedOperationException("Virtual threads are not available in Java "
+                    + Runtime.version().feature() + ".");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("A fixed pool needs at least one thread: " + threads);
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+}
@@ -0,0 +1,363 @@
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * StableRoommates implements Irving's algorithm for the stable roommates problem, with incomplete lists.
+ * Students are numbered by their position in the input, and each preference list is reduced to the students
+ * who also list them (a pair can only share a room if both accept it). Lists are kept as int arrays, and
+ * rank[i][k] holds the position of student i in the list of their k-th choice, so every "who does j prefer"
+ * question is one array read instead of an indexOf over names.
+ *
+ * <p>Phase 1 is the proposal sequence: every student proposes down their list, and a student holding a
+ * proposal drops everyone they like less. Phase 2 finds and eliminates rotations until every list has at most
+ * one entry. Deletions are never done in place: a list is the entries between first[i] and last[i] whose
+ * partner still has i before its own last, and the cursors only move inwards. Both phases therefore run in
+ * time linear in the total length of the lists, O(n^2) for complete lists. If a list runs empty during
+ * phase 2 the instance has no stable matching; students whose list runs empty during phase 1 are unmatched
+ * in every stable matching.</p>
+ */
+public class StableRoommates {
+    private final int n;
+    private final int[][] prefs; // mutually acceptable choices of each student, best first
+    private final int[][] rank; // rank[i][k]: position of i in the list of prefs[i][k]
+
+    private int[] first;
+    private int[] second;
+    private int[] last;
+
+    /**
+     * Constructor for StableRoommates, resolving each student's roommate preferences by name.
+     * Unknown names, repeated names and students listing themselves are ignored.
+     * @param students The students to match, numbered in list order.
+     */
+    public StableRoommates(List<UniversityStudent> students) {
+        this(students, s -> s.roommatePreferences);
+    }
+
+    /**
+     * Constructor for StableRoommates with preferences given by a function instead of read from the students.
+     * @param students The students to match, numbered in list order.
+     * @param preferences Returns the roommate preferences of a student, as names, best first.
+     */
+    public StableRoommates(List<UniversityStudent> students, Function<UniversityStudent, List<String>> preferences) {
+        this(preferenceIds(students, preferences));
+    }
+
+    //builds the tables from raw preference lists of student IDs, which do not need to be mutual
+    StableRoommates(int[][] preferences) {
+        n = preferences.length;
+        int[][][] tables = tables(preferences);
+        prefs = tables[0];
+        rank = tables[1];
+    }
+
+    private static int[][] preferenceIds(List<UniversityStudent> students,
+                                         Function<UniversityStudent, List<String>> preferences) {
+        Map<String, Integer> ids = new HashMap<>(students.size() * 2);
+        for (int i = 0; i < students.size(); i++) {
+            ids.put(students.get(i).name, i);
+        }
+        int[][] result = new int[students.size()][];
+        for (int i = 0; i < students.size(); i++) {
+            List<String> names = preferences.apply(students.get(i));
+            int[] list = new int[names.size()];
+            int count = 0;
+            for (String name : names) {
+                Integer id = ids.get(name);
+                if (id != null) {
+                    list[count++] = id;
+                }
+            }
+            result[i] = Arrays.copyOf(list, count);
+        }
+        return result;
+    }
+
+    //keeps the first occurrence of each choice j != i that also lists i, in order, and returns {prefs, rank}
+    private static int[][][] tables(int[][] preferences) {
+        int n = preferences.length;
+        //transpose: for every j, the students listing j and the slot j has in their list, by counting sort
+        int[] counts = new int[n + 1];
+        for (int[] list : preferences) {
+            for (int j : list) {
+                if (j < 0 || j >= n) {
+                    throw new IllegalArgumentException("Preference out of range: " + j);
+                }
+                counts[j + 1]++;
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            counts[j + 1] += counts[j];
+        }
+        int[] listedBy = new int[counts[n]];
+        int[] listedAt = new int[counts[n]];
+        int[] fill = Arrays.copyOf(counts, n);
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < preferences[i].length; k++) {
+                int slot = fill[preferences[i][k]]++;
+                listedBy[slot] = i;
+                listedAt[slot] = k;
+            }
+        }
+
+        //raw[j][k]: position of j in the list of its k-th choice, or -1 if that choice is dropped
+        int[][] raw = new int[n][];
+        int[] ownStamp = new int[n];
+        int[] otherStamp = new int[n];
+        int[] position = new int[n];
+        Arrays.fill(ownStamp, -1);
+        Arrays.fill(otherStamp, -1);
+        long kept = 0;
+        for (int j = 0; j < n; j++) {
+            int[] list = preferences[j];
+            int[] row = new int[list.length];
+            Arrays.fill(row, -1);
+            for (int k = 0; k < list.length; k++) {
+                int c = list[k];
+                if (c != j && ownStamp[c] != j) {
+                    ownStamp[c] = j;
+                    position[c] = k;
+                }
+            }
+            for (int e = counts[j]; e < counts[j + 1]; e++) {
+                int i = listedBy[e];
+                if (i != j && ownStamp[i] == j && otherStamp[i] != j) {
+                    otherStamp[i] = j; // first occurrence of j in i's list
+                    row[position[i]] = listedAt[e];
+                    kept++;
+                }
+            }
+            raw[j] = row;
+        }
+        if (kept == counts[n]) {
+            return new int[][][]{preferences, raw}; // every choice is mutual, positions need no remapping
+        }
+
+        //drop the other choices and renumber the positions
+        int[][] index = new int[n][];
+        int[][] prefs = new int[n][];
+        for (int i = 0; i < n; i++) {
+            int[] row = raw[i];
+            int[] renumbered = new int[row.length];
+            int count = 0;
+            for (int k = 0; k < row.length; k++) {
+                renumbered[k] = row[k] < 0 ? -1 : count++;
+            }
+            index[i] = renumbered;
+            prefs[i] = new int[count];
+        }
+        int[][] rank = new int[n][];
+        for (int i = 0; i < n; i++) {
+            rank[i] = new int[prefs[i].length];
+            int[] row = raw[i];
+            for (int k = 0; k < row.length; k++) {
+                if (row[k] >= 0) {
+                    int c = preferences[i][k];
+                    prefs[i][index[i][k]] = c;
+                    rank[i][index[i][k]] = index[c][row[k]];
+                }
+            }
+        }
+        return new int[][][]{prefs, rank};
+    }
+
+    //number of students
+    public int size() {
+        return n;
+    }
+
+    /**
+     * Runs Irving's algorithm.
+     * @return The partner of every student by ID, -1 for students left unmatched, or null if the instance
+     *         has no stable matching.
+     */
+    public int[] solve() {
+        first = new int[n];
+        second = new int[n];
+        last = new int[n];
+        for (int i = 0; i < n; i++) {
+            second[i] = 1;
+            last[i] = prefs[i].length - 1;
+        }
+        proposals();
+        if (!eliminateRotations()) {
+            return null;
+        }
+        int[] partner = new int[n];
+        for (int i = 0; i < n; i++) {
+            int k = firstChoice(i);
+            partner[i] = k < 0 ? -1 : prefs[i][k];
+        }
+        for (int i = 0; i < n; i++) {
+            if (partner[i] >= 0 && partner[partner[i]] != i) {
+                return null; // not reachable for a fully reduced table
+            }
+        }
+        return partner;
+    }
+
+    /**
+     * Pairs students with a plain proposal pass over the same tables, for instances without a stable matching.
+     * Free students propose down their lists; a student accepts a proposal if they are free or like it better
+     * than their current roommate, whose pairing is then broken. The result is a matching, not a stable one.
+     * @return The partner of every student by ID, -1 for students left unmatched.
+     */
+    public int[] proposalMatching() {
+        int[] partner = new int[n];
+        int[] partnerPosition = new int[n]; // position of the partner in the student's own list
+        int[] next = new int[n];
+        Arrays.fill(partner, -1);
+        boolean[] queued = new boolean[n];
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            queue[tail++ % n] = i;
+            queued[i] = true;
+        }
+        while (head != tail) {
+            int s = queue[head++ % n];
+            queued[s] = false;
+            while (partner[s] < 0 && next[s] < prefs[s].length) {
+                int k = next[s]++;
+                int t = prefs[s][k];
+                if (partner[t] >= 0 && rank[s][k] > partnerPosition[t]) {
+                    continue; // t likes their roommate better
+                }
+                int displaced = partner[t];
+                if (displaced >= 0) {
+                    partner[displaced] = -1;
+                    if (!queued[displaced]) {
+                        queue[tail++ % n] = displaced;
+                        queued[displaced] = true;
+                    }
+                }
+                partner[s] = t;
+                partnerPosition[s] = k;
+                partner[t] = s;
+                partnerPosition[t] = rank[s][k];
+            }
+        }
+        return partner;
+    }
+
+    //whether the k-th entry of i's list is still there
+    private boolean live(int i, int k) {
+        return k <= last[i] && rank[i][k] <= last[prefs[i][k]];
+    }
+
+    //position of i's current first choice, or -1 if the list is empty
+    private int firstChoice(int i) {
+        int k = first[i];
+        while (k <= last[i] && !live(i, k)) {
+            k++;
+        }
+        first[i] = k;
+        return k <= last[i] ? k : -1;
+    }
+
+    //position of i's current second choice, or -1 if the list has fewer than two entries
+    private int secondChoice(int i) {
+        int f = firstChoice(i);
+        if (f < 0) {
+            return -1;
+        }
+        int k = Math.max(second[i], f + 1);
+        while (k <= last[i] && !live(i, k)) {
+            k++;
+        }
+        second[i] = k;
+        return k <= last[i] ? k : -1;
+    }
+
+    //position of i's current last choice, or -1 if the list is empty
+    private int lastChoice(int i) {
+        while (last[i] >= first[i] && !live(i, last[i])) {
+            last[i]--;
+        }
+        return last[i] >= first[i] ? last[i] : -1;
+    }
+
+    //phase 1: when j receives a proposal from i, every entry after i in j's list is deleted
+    private void proposals() {
+        int[] holder = new int[n];
+        Arrays.fill(holder, -1);
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            queue[tail++ % n] = i;
+        }
+        while (head != tail) {
+            int i = queue[head++ % n];
+            int k = firstChoice(i);
+            if (k < 0) {
+                continue; // rejected by everyone
+            }
+            int j = prefs[i][k];
+            int previous = holder[j];
+            holder[j] = i;
+            last[j] = rank[i][k];
+            if (previous >= 0) {
+                queue[tail++ % n] = previous; // previous is now behind last[j], so its entry for j is gone
+            }
+        }
+    }
+
+    //phase 2: returns false if a list runs empty, which means no stable matching exists
+    private boolean eliminateRotations() {
+        int[] stack = new int[n + 1];
+        boolean[] onStack = new boolean[n];
+        int top = 0;
+        int cursor = 0;
+        int[] rotation = new int[n];
+        int[] seconds = new int[n];
+        while (true) {
+            if (top == 0) {
+                while (cursor < n && secondChoice(cursor) < 0) {
+                    cursor++;
+                }
+                if (cursor == n) {
+                    return true;
+                }
+                stack[top++] = cursor;
+                onStack[cursor] = true;
+            }
+            int x = stack[top - 1];
+            int s = secondChoice(x);
+            if (s < 0) {
+                //only happens to a student left over from an earlier rotation
+                onStack[x] = false;
+                top--;
+                continue;
+            }
+            int y = prefs[x][s];
+            int z = prefs[y][lastChoice(y)];
+            if (!onStack[z]) {
+                stack[top++] = z;
+                onStack[z] = true;
+                continue;
+            }
+            //the stack from z to the top is a rotation: every x in it moves to its second choice
+            int size = 0;
+            do {
+                int p = stack[--top];
+                onStack[p] = false;
+                rotation[size++] = p;
+            } while (rotation[size - 1] != z);
+            for (int r = 0; r < size; r++) {
+                seconds[r] = secondChoice(rotation[r]);
+            }
+            for (int r = 0; r < size; r++) {
+                int p = rotation[r];
+                int q = prefs[p][seconds[r]];
+                last[q] = rank[p][seconds[r]]; // q drops everyone after p, including its old last choice
+            }
+            for (int r = 0; r < size; r++) {
+                if (firstChoice(rotation[r]) < 0) {
+                    return false;
+                }
+            }
+        }
+    }
+}
@@ -1,4 +1,6 @@
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * StudentGraph class represents a graph of UniversityStudent objects.
@@ -27,7 +29,9 @@ public class StudentGraph {
         }
     }
 
-    private Map<UniversityStudent, List<Edge>> adjacencyList;
+    private Map<UniversityStudent, List<Edge>> adjacencyList; //in insertion order, see updateStudent
+    private volatile long version; //bumped on every mutation so derived structures know when to rebuild
+    private AttributeIndex attributeIndex; //the attribute values the edges were scored from, see updateStudent
 
     /**
      * Constructor for the StudentGraph class.
@@ -35,7 +39,7 @@ public class StudentGraph {
      * @param students List of UniversityStudent objects to be added to the graph.
      */
     public StudentGraph(List<UniversityStudent> students) {
-        adjacencyList = new HashMap<>();
+        adjacencyList = new LinkedHashMap<>();
         //intialize nodes
         for (UniversityStudent s : students) {
             adjacencyList.put(s, new ArrayList<>());
@@ -51,12 +55,564 @@ public class StudentGraph {
                     addEdge(student1, student2, weight);                }
             }
         }
+        attributeIndex();
+    }
+
+    //creates an empty graph, used by the alternative build modes below
+    protected StudentGraph() {
+        adjacencyList = new LinkedHashMap<>();
+    }
+
+    /**
+     * Builds a StudentGraph using an inverted index instead of scoring every pair of students.
+     * Students are bucketed by internship, major and age (plus their assigned roommate), and only
+     * pairs that share at least one bucket are scored, so build time grows with the number of
+     * real edges rather than with n^2. The resulting edges, weights and neighbor order are
+     * identical to the ones produced by {@link #StudentGraph(List)}.
+     * @param students List of UniversityStudent objects to be added to the graph.
+     * @return The built StudentGraph.
+     */
+    public static StudentGraph buildIndexed(List<UniversityStudent> students) {
+        StudentGraph graph = new StudentGraph();
+        for (UniversityStudent s : students) {
+            graph.adjacencyList.put(s, new ArrayList<>());
+        }
+        CandidateIndex index = new CandidateIndex(students);
+        int[] seen = new int[students.size()];
+        int[] candidates = new int[Math.max(1, students.size())];
+        int[] weights = new int[Math.max(1, students.size())];
+        for (int i = 0; i < students.size(); i++) {
+            int count = index.scoreRow(i, seen, candidates, weights);
+            for (int c = 0; c < count; c++) {
+                graph.addEdge(students.get(i), students.get(candidates[c]), weights[c]);
+            }
+        }
+        graph.attributeIndex();
+        return graph;
+    }
+
+    /**
+     * Builds a StudentGraph in parallel on a ForkJoinPool.
+     * Rows of the pair space are split across workers, each worker scores the candidate pairs of its rows
+     * into its own primitive edge buffers, and the buffers are then merged so that every worker only fills
+     * the adjacency lists of its own students. No global lock is taken, and the result is identical to
+     * {@link #StudentGraph(List)} and {@link #buildIndexed(List)}.
+     * @param students List of UniversityStudent objects to be added to the graph.
+     * @param parallelism Number of worker threads to use.
+     * @return The built StudentGraph.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static StudentGraph buildParallel(List<UniversityStudent> students, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1: " + parallelism);
+        }
+        int n = students.size();
+        CandidateIndex index = new CandidateIndex(students);
+        int[][] rowTargets = new int[n][];
+        int[][] rowWeights = new int[n][];
+        List<Edge>[] lists = new List[n];
+        int threshold = Math.max(16, n / (parallelism * 8));
+
+        //scratch arrays per worker thread; row i marks its candidates with stamp i + 1, so they never need clearing
+        ThreadLocal<RowScratch> scratch = ThreadLocal.withInitial(() -> new RowScratch(n));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            //phase 1: score each row i against its candidates j > i
+            pool.invoke(new RangeTask(0, n, threshold, (lo, hi) -> {
+                RowScratch rows = scratch.get();
+                for (int i = lo; i < hi; i++) {
+                    int kept = index.scoreRow(i, rows.seen, rows.candidates, rows.weights);
+                    rowTargets[i] = Arrays.copyOf(rows.candidates, kept);
+                    rowWeights[i] = Arrays.copyOf(rows.weights, kept);
+                }
+            }));
+
+            //phase 2: transpose the rows so each student knows its edges from earlier students, in row order
+            int[] inOffsets = new int[n + 1];
+            for (int i = 0; i < n; i++) {
+                for (int j : rowTargets[i]) {
+                    inOffsets[j + 1]++;
+                }
+            }
+            for (int k = 0; k < n; k++) {
+                inOffsets[k + 1] += inOffsets[k];
+            }
+            int[] inSources = new int[inOffsets[n]];
+            int[] inWeights = new int[inOffsets[n]];
+            int[] fill = Arrays.copyOf(inOffsets, n);
+            for (int i = 0; i < n; i++) {
+                for (int c = 0; c < rowTargets[i].length; c++) {
+                    int slot = fill[rowTargets[i][c]]++;
+                    inSources[slot] = i;
+                    inWeights[slot] = rowWeights[i][c];
+                }
+            }
+
+            //phase 3: each worker builds the adjacency lists of its own students
+            pool.invoke(new RangeTask(0, n, threshold, (lo, hi) -> {
+                for (int k = lo; k < hi; k++) {
+                    List<Edge> edges = new ArrayList<>(inOffsets[k + 1] - inOffsets[k] + rowTargets[k].length);
+                    for (int e = inOffsets[k]; e < inOffsets[k + 1]; e++) {
+                        edges.add(new Edge(students.get(inSources[e]), inWeights[e]));
+                    }
+                    for (int c = 0; c < rowTargets[k].length; c++) {
+                        edges.add(new Edge(students.get(rowTargets[k][c]), rowWeights[k][c]));
+                    }
+                    lists[k] = edges;
+                }
+            }));
+        } finally {
+            pool.shutdown();
+        }
+
+        StudentGraph graph = new StudentGraph();
+        for (int k = 0; k < n; k++) {
+            graph.adjacencyList.put(students.get(k), lists[k]);
+        }
+        graph.attributeIndex();
+        return graph;
+    }
+
+    /**
+     * Returns a mutable copy of a graph, with the same students, edges and neighbor order.
+     * This is how a loaded {@link CompactStudentGraph} is turned back into a graph that can be updated,
+     * in time linear in the number of edges.
+     * @param graph The graph to copy.
+     * @return The copied StudentGraph.
+     */
+    public static StudentGraph copyOf(StudentGraph graph) {
+        StudentGraph copy = new StudentGraph();
+        for (UniversityStudent s : graph.getAllNodes()) {
+            List<Edge> neighbors = graph.getNeighbors(s);
+            List<Edge> edges = new ArrayList<>(neighbors.size());
+            for (Edge edge : neighbors) {
+                edges.add(new Edge(edge.neighbor, edge.weight));
+            }
+            copy.adjacencyList.put(s, edges);
+        }
+        copy.attributeIndex();
+        return copy;
+    }
+
+    //buffers one worker reuses for every row it scores
+    private static class RowScratch {
+        final int[] seen;
+        final int[] candidates;
+        final int[] weights;
+
+        RowScratch(int n) {
+            seen = new int[n];
+            candidates = new int[Math.max(1, n)];
+            weights = new int[Math.max(1, n)];
+        }
+    }
+
+    //work applied to a contiguous range of student positions
+    private interface RangeWork {
+        void run(int lo, int hi);
+    }
+
+    //splits a range of student positions in half until it is small enough to run on one worker
+    private static class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo;
+        private final int hi;
+        private final int threshold;
+        private final RangeWork work;
+
+        RangeTask(int lo, int hi, int threshold, RangeWork work) {
+            this.lo = lo;
+            this.hi = hi;
+            this.threshold = threshold;
+            this.work = work;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= threshold) {
+                work.run(lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new RangeTask(lo, mid, threshold, work), new RangeTask(mid, hi, threshold, work));
+        }
+    }
+
+    /**
+     * CandidateIndex buckets students by every attribute that can contribute to their connection strength.
+     * Two students can only have a non-zero connection strength if they share at least one bucket.
+     */
+    static class CandidateIndex {
+        private final Map<UniversityStudent, Integer> positions = new HashMap<>();
+        private final Map<Integer, List<Integer>> byInternship = new HashMap<>();
+        private final Map<Integer, List<Integer>> byMajor = new HashMap<>();
+        private final Map<Integer, List<Integer>> byAge = new HashMap<>();
+        private final List<UniversityStudent> students;
+
+        CandidateIndex(List<UniversityStudent> students) {
+            this.students = students;
+            for (int i = 0; i < students.size(); i++) {
+                UniversityStudent s = students.get(i);
+                positions.put(s, i);
+                for (int internship : s.internshipIds()) {
+                    List<Integer> bucket = byInternship.computeIfAbsent(internship, k -> new ArrayList<>());
+                    //a student listing the same internship twice only needs to be bucketed once
+                    if (bucket.isEmpty() || bucket.get(bucket.size() - 1) != i) {
+                        bucket.add(i);
+                    }
+                }
+                byMajor.computeIfAbsent(s.majorId(), k -> new ArrayList<>()).add(i);
+                byAge.computeIfAbsent(s.age, k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        //scores student i against every later candidate, keeping the non-zero pairs in ascending order of j
+        int scoreRow(int i, int[] seen, int[] targets, int[] weights) {
+            int count = collectCandidates(i, seen, targets);
+            Arrays.sort(targets, 0, count); //keep the same edge order as the all-pairs loop
+            int kept = 0;
+            for (int c = 0; c < count; c++) {
+                int weight = students.get(i).calculateConnectionStrength(students.get(targets[c]));
+                if (weight > 0) {
+                    targets[kept] = targets[c];
+                    weights[kept++] = weight;
+                }
+            }
+            return kept;
+        }
+
+        //collects the positions j > i of every student sharing a bucket with student i (unsorted, no duplicates)
+        private int collectCandidates(int i, int[] seen, int[] out) {
+            UniversityStudent s = students.get(i);
+            int stamp = i + 1;
+            int count = 0;
+            for (int internship : s.internshipIds()) {
+                count = addBucket(byInternship.get(internship), i, stamp, seen, out, count);
+            }
+            count = addBucket(byMajor.get(s.majorId()), i, stamp, seen, out, count);
+            count = addBucket(byAge.get(s.age), i, stamp, seen, out, count);
+            if (s.getRoommate() != null) {
+                Integer j = positions.get(s.getRoommate());
+                if (j != null && j > i && seen[j] != stamp) {
+                    seen[j] = stamp;
+                    out[count++] = j;
+                }
+            }
+            return count;
+        }
+
+        private static int addBucket(List<Integer> bucket, int i, int stamp, int[] seen, int[] out, int count) {
+            if (bucket == null) {
+                return count;
+            }
+            //buckets are filled in list order, so everything after i's own entry is a later student
+            int from = Collections.binarySearch(bucket, i) + 1;
+            for (int k = from; k < bucket.size(); k++) {
+                int j = bucket.get(k);
+                if (seen[j] != stamp) {
+                    seen[j] = stamp;
+                    out[count++] = j;
+                }
+            }
+            return count;
+        }
     }
 
     //adds a weighted undirected edge between two students
     public void addEdge(UniversityStudent student1, UniversityStudent student2, int weight) {
         adjacencyList.get(student1).add(new Edge(student2, weight));
         adjacencyList.get(student2).add(new Edge(student1, weight)); // Undirected graph
+        version++;
+    }
+
+    /**
+     * Adds a student to the graph and connects them to every existing student they share an attribute with.
+     * Candidates come from an index of internships, majors, ages and roommates, so the cost depends on the
+     * number of students sharing an attribute with the new one, not on the size of the graph.
+     * @param student The student to add.
+     */
+    public void addStudent(UniversityStudent student) {
+        if (adjacencyList.containsKey(student)) {
+            throw new IllegalArgumentException("Student is already in the graph: " + student.getName());
+        }
+        AttributeIndex index = attributeIndex();
+        adjacencyList.put(student, new ArrayList<>());
+        Set<UniversityStudent> candidates = index.candidates(student);
+        connect(index.add(student, index.nextSequence()), index, candidates);
+        version++;
+    }
+
+    /**
+     * Removes a student and all of their edges from the graph.
+     * Each neighbor's list is updated in place, so the cost is bounded by the degrees of the student's neighbors.
+     * @param student The student to remove.
+     */
+    public void removeStudent(UniversityStudent student) {
+        List<Edge> edges = adjacencyList.get(student);
+        if (edges == null) {
+            throw new IllegalArgumentException("Student is not in the graph: " + student.getName());
+        }
+        disconnect(student, edges);
+        adjacencyList.remove(student);
+        attributeIndex().remove(student);
+        version++;
+    }
+
+    /**
+     * Recomputes the edges of a student whose attributes changed (age, major, internships or roommate).
+     * Only the student's old edges and the edges to students sharing one of the new attributes are touched.
+     * The student keeps their place in the insertion order, so the weights match a rebuild from the same list.
+     * Edges added with {@link #addEdge(UniversityStudent, UniversityStudent, int)}, such as friend edges, are
+     * kept: for each neighbor, only the edge carrying the connection strength of the old attributes is replaced.
+     * @param student The student whose attributes changed.
+     */
+    public void updateStudent(UniversityStudent student) {
+        List<Edge> edges = adjacencyList.get(student);
+        if (edges == null) {
+            throw new IllegalArgumentException("Student is not in the graph: " + student.getName());
+        }
+        AttributeIndex index = attributeIndex();
+        IndexedValues old = index.remove(student);
+        Set<UniversityStudent> neighbors = new LinkedHashSet<>();
+        for (Edge edge : edges) {
+            neighbors.add(edge.neighbor);
+        }
+        for (UniversityStudent other : neighbors) {
+            unlink(student, other, old.strengthWith(index.valuesOf(other)));
+        }
+        Set<UniversityStudent> candidates = index.candidates(student);
+        connect(index.add(student, old.sequence), index, candidates);
+        version++;
+    }
+
+    /**
+     * Sets the roommate of a student, or clears it if roommate is null. Like
+     * {@link UniversityStudent#setRoommate(UniversityStudent)} only this student's side is changed, and only
+     * the two pairs the roommate bonus can affect are rescored: the student with their old roommate and
+     * with the new one. Edges added with {@link #addEdge(UniversityStudent, UniversityStudent, int)} are kept.
+     * @param student The student.
+     * @param roommate The new roommate, or null.
+     */
+    public void setRoommate(UniversityStudent student, UniversityStudent roommate) {
+        if (!adjacencyList.containsKey(student)) {
+            throw new IllegalArgumentException("Student is not in the graph: " + student.getName());
+        }
+        AttributeIndex index = attributeIndex();
+        UniversityStudent oldRoommate = student.getRoommate();
+        if (oldRoommate == roommate) {
+            return;
+        }
+        IndexedValues old = index.remove(student);
+        student.setRoommate(roommate);
+        IndexedValues now = index.add(student, old.sequence);
+        rescore(old, now, oldRoommate, index);
+        rescore(old, now, roommate, index);
+        version++;
+    }
+
+    //replaces the edge carrying the old connection strength of a pair with one carrying the current one
+    private void rescore(IndexedValues old, IndexedValues now, UniversityStudent other, AttributeIndex index) {
+        UniversityStudent student = now.student;
+        if (other == null || other == student || !adjacencyList.containsKey(other)) {
+            return;
+        }
+        unlink(student, other, old.strengthWith(index.valuesOf(other)));
+        int weight = now.strengthWith(index.valuesOf(other));
+        if (weight > 0) {
+            adjacencyList.get(student).add(new Edge(other, weight));
+            adjacencyList.get(other).add(new Edge(student, weight));
+        }
+    }
+
+    //removes one edge of the given weight between two students, leaving any other edge between them
+    private void unlink(UniversityStudent student, UniversityStudent other, int weight) {
+        if (weight > 0) {
+            removeEdge(adjacencyList.get(student), other, weight);
+            removeEdge(adjacencyList.get(other), student, weight);
+        }
+    }
+
+    private static void removeEdge(List<Edge> edges, UniversityStudent neighbor, int weight) {
+        for (int i = 0; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+            if (edge.neighbor == neighbor && edge.weight == weight) {
+                edges.remove(i);
+                return;
+            }
+        }
+    }
+
+    //adds the edges between a student and every candidate with a non-zero connection strength
+    private void connect(IndexedValues values, AttributeIndex index, Set<UniversityStudent> candidates) {
+        UniversityStudent student = values.student;
+        List<Edge> edges = adjacencyList.get(student);
+        for (UniversityStudent other : candidates) {
+            int weight = values.strengthWith(index.valuesOf(other));
+            if (weight > 0) {
+                edges.add(new Edge(other, weight));
+                adjacencyList.get(other).add(new Edge(student, weight));
+            }
+        }
+    }
+
+    //removes the reverse edges pointing at a student from each of their neighbors
+    private void disconnect(UniversityStudent student, List<Edge> edges) {
+        for (Edge edge : edges) {
+            List<Edge> reverse = adjacencyList.get(edge.neighbor);
+            if (reverse != null) {
+                reverse.removeIf(e -> e.neighbor == student);
+            }
+        }
+    }
+
+    //indexes the current attribute values; graphs index them when built, so later updates know the old values
+    private AttributeIndex attributeIndex() {
+        if (attributeIndex == null) {
+            attributeIndex = new AttributeIndex();
+            for (UniversityStudent s : adjacencyList.keySet()) {
+                attributeIndex.add(s, attributeIndex.nextSequence());
+            }
+        }
+        return attributeIndex;
+    }
+
+    /**
+     * AttributeIndex keeps, for every attribute value that adds to connection strength, the students who have it.
+     * It remembers the values each student was indexed under, so it can still remove them after they changed,
+     * and the position of each student in the insertion order.
+     */
+    private static class AttributeIndex {
+        private final Map<Integer, Set<UniversityStudent>> byInternship = new HashMap<>();
+        private final Map<Integer, Set<UniversityStudent>> byMajor = new HashMap<>();
+        private final Map<Integer, Set<UniversityStudent>> byAge = new HashMap<>();
+        private final Map<UniversityStudent, Set<UniversityStudent>> byRoommate = new HashMap<>();
+        private final Map<UniversityStudent, IndexedValues> indexed = new HashMap<>();
+        private long sequence;
+
+        long nextSequence() {
+            return sequence++;
+        }
+
+        IndexedValues valuesOf(UniversityStudent s) {
+            return indexed.get(s);
+        }
+
+        IndexedValues add(UniversityStudent s, long sequence) {
+            IndexedValues values = new IndexedValues(s, sequence);
+            indexed.put(s, values);
+            for (int internship : values.internships) {
+                byInternship.computeIfAbsent(internship, k -> new HashSet<>()).add(s);
+            }
+            byMajor.computeIfAbsent(values.major, k -> new HashSet<>()).add(s);
+            byAge.computeIfAbsent(values.age, k -> new HashSet<>()).add(s);
+            if (values.roommate != null) {
+                byRoommate.computeIfAbsent(values.roommate, k -> new HashSet<>()).add(s);
+            }
+            return values;
+        }
+
+        //removes a student and returns the values they were indexed under
+        IndexedValues remove(UniversityStudent s) {
+            IndexedValues values = indexed.remove(s);
+            if (values == null) {
+                return null;
+            }
+            for (int internship : values.internships) {
+                removeFrom(byInternship, internship, s);
+            }
+            removeFrom(byMajor, values.major, s);
+            removeFrom(byAge, values.age, s);
+            if (values.roommate != null) {
+                removeFrom(byRoommate, values.roommate, s);
+            }
+            return values;
+        }
+
+        //every indexed student who shares an attribute with s or has s as their roommate
+        Set<UniversityStudent> candidates(UniversityStudent s) {
+            Set<UniversityStudent> result = new HashSet<>();
+            for (int internship : s.internshipIds()) {
+                addAll(result, byInternship.get(internship));
+            }
+            addAll(result, byMajor.get(s.majorId()));
+            addAll(result, byAge.get(s.age));
+            addAll(result, byRoommate.get(s));
+            if (s.getRoommate() != null && indexed.containsKey(s.getRoommate())) {
+                result.add(s.getRoommate());
+            }
+            result.remove(s);
+            return result;
+        }
+
+        private static void addAll(Set<UniversityStudent> result, Set<UniversityStudent> bucket) {
+            if (bucket != null) {
+                result.addAll(bucket);
+            }
+        }
+
+        private static <K> void removeFrom(Map<K, Set<UniversityStudent>> buckets, K key, UniversityStudent s) {
+            Set<UniversityStudent> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(s);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    //attribute values a student was indexed under
+    private static class IndexedValues {
+        final UniversityStudent student;
+        final int[] internships;
+        final int major;
+        final int age;
+        final UniversityStudent roommate;
+        final long sequence;
+
+        IndexedValues(UniversityStudent s, long sequence) {
+            this.student = s;
+            this.sequence = sequence;
+            this.internships = s.internshipIds().clone();
+            this.major = s.majorId();
+            this.age = s.age;
+            this.roommate = s.getRoommate();
+        }
+
+        //connection strength of the pair under these values, scored from the student inserted first
+        int strengthWith(IndexedValues other) {
+            return other.sequence < sequence ? other.strengthTo(this) : strengthTo(other);
+        }
+
+        //same scoring as UniversityStudent.calculateConnectionStrength, on the indexed values
+        private int strengthTo(IndexedValues other) {
+            int strength = roommate == other.student ? 4 : 0;
+            int j = 0;
+            for (int internship : internships) {
+                while (j < other.internships.length && other.internships[j] < internship) {
+                    j++;
+                }
+                if (j == other.internships.length) {
+                    break;
+                }
+                if (other.internships[j] == internship) {
+                    strength += 3;
+                }
+            }
+            if (major == other.major) {
+                strength += 2;
+            }
+            if (age == other.age) {
+                strength += 1;
+            }
+            return strength;
+        }
+    }
+
+    //returns the current version of the graph, which increases every time the graph is mutated
+    public long getVersion() {
+        return version;
     }
 
     //returns the list of edges (neighbors and weights) for a given student
@@ -72,8 +628,8 @@ public class StudentGraph {
     //displays the graph via console
     public void displayGraph() {
         System.out.println("\nStudent Graph:");
-        for(UniversityStudent s: adjacencyList.keySet()){
-            System.out.println(s.name + " -> " + adjacencyList.get(s));
+        for(UniversityStudent s: getAllNodes()){
+            System.out.println(s.name + " -> " + getNeighbors(s));
         }
     }
 }
\ No newline at end of file
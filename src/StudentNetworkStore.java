@@ -0,0 +1,358 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * StudentNetworkStore keeps a student network in memory and makes it survive a restart.
+ * Every mutation is checked, appended to a {@link NetworkChangeLog} and only then applied to a mutable
+ * StudentGraph, so an event that cannot be logged leaves the network unchanged; compacting writes the whole
+ * network to a {@link NetworkSnapshot} and starts a new, empty log. Opening a store loads
+ * the snapshot, copies it into a mutable graph in time linear in its edges, and replays the log on top of it
+ * with the incremental graph updates, so startup never scores all pairs of students again.
+ *
+ * <p>Mutations are serialized on the store; the graph must not be read while one is in progress. Students
+ * are referred to by name in the log, so names must be unique. Events are durable once the log has been
+ * synced, which happens every syncEvery events, on {@link #sync()} and on {@link #close()}.</p>
+ */
+public class StudentNetworkStore implements Closeable {
+    static final String SNAPSHOT_FILE = "network.snapshot";
+    static final String LOG_FILE = "network.log";
+
+    private final Path directory;
+    private final long compactAfter;
+    private final StudentGraph graph;
+    private final Map<String, UniversityStudent> byName = new HashMap<>();
+    private final NetworkChangeLog log;
+    private final long replayedEvents;
+    private final long replayNanos;
+
+    /**
+     * Opens the store in a directory with default settings: a sync every 256 events and compaction
+     * after 100,000 logged events.
+     * @param directory The directory holding the snapshot and the log; it is created if needed.
+     * @throws IOException If the snapshot or the log cannot be read.
+     */
+    public StudentNetworkStore(String directory) throws IOException {
+        this(directory, 256, 100_000);
+    }
+
+    /**
+     * Opens the store in a directory, loading its snapshot and replaying its log.
+     * @param directory The directory holding the snapshot and the log; it is created if needed.
+     * @param syncEvery The number of events written between two forces of the log to disk.
+     * @param compactAfter The number of logged events after which the store compacts itself, or 0 to only
+     *                     compact on {@link #compact()}.
+     * @throws IOException If the snapshot or the log cannot be read.
+     */
+    public StudentNetworkStore(String directory, int syncEvery, long compactAfter) throws IOException {
+        this.directory = Paths.get(directory);
+        this.compactAfter = compactAfter;
+        Files.createDirectories(this.directory);
+        Path snapshotPath = this.directory.resolve(SNAPSHOT_FILE);
+        long checkpoint = 0;
+        if (Files.exists(snapshotPath)) {
+            NetworkSnapshot snapshot = NetworkSnapshot.load(snapshotPath.toString());
+            graph = StudentGraph.copyOf(snapshot.getGraph());
+            checkpoint = snapshot.getCheckpoint();
+        } else {
+            graph = new StudentGraph(new ArrayList<>());
+        }
+        for (UniversityStudent s : graph.getAllNodes()) {
+            byName.put(s.getName(), s);
+        }
+        long start = System.nanoTime();
+        log = NetworkChangeLog.open(this.directory.resolve(LOG_FILE).toString(), checkpoint, syncEvery,
+                new Replay());
+        replayNanos = System.nanoTime() - start;
+        replayedEvents = log.getEventCount();
+    }
+
+    /**
+     * Creates a store with default settings from an already built graph, replacing any snapshot and log
+     * in the directory.
+     * @param directory The directory to hold the snapshot and the log.
+     * @param graph The graph to start from.
+     * @return The opened store.
+     * @throws IOException If the snapshot or the log cannot be written.
+     */
+    public static StudentNetworkStore create(String directory, StudentGraph graph) throws IOException {
+        return create(directory, graph, 256, 100_000);
+    }
+
+    /**
+     * Creates a store from an already built graph, replacing any snapshot and log in the directory.
+     * @param directory The directory to hold the snapshot and the log.
+     * @param graph The graph to start from.
+     * @param syncEvery The number of events written between two forces of the log to disk.
+     * @param compactAfter The number of logged events after which the store compacts itself, or 0 to only
+     *                     compact on {@link #compact()}.
+     * @return The opened store.
+     * @throws IOException If the snapshot or the log cannot be written.
+     */
+    public static StudentNetworkStore create(String directory, StudentGraph graph, int syncEvery,
+                                             long compactAfter) throws IOException {
+        Path dir = Paths.get(directory);
+        Files.createDirectories(dir);
+        Files.deleteIfExists(dir.resolve(LOG_FILE));
+        writeSnapshot(dir, CompactStudentGraph.of(graph), 1);
+        return new StudentNetworkStore(directory, syncEvery, compactAfter);
+    }
+
+    //writes the snapshot next to the old one and moves it in place, so a crash leaves one or the other
+    private static void writeSnapshot(Path dir, CompactStudentGraph graph, long checkpoint) throws IOException {
+        Path temp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        NetworkSnapshot.write(temp.toString(), graph, checkpoint);
+        Files.move(temp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //returns the in-memory graph
+    public StudentGraph getGraph() {
+        return graph;
+    }
+
+    //returns the student with the given name, or null if there is none
+    public synchronized UniversityStudent getStudent(String name) {
+        return byName.get(name);
+    }
+
+    //number of events replayed from the log when the store was opened
+    public long getReplayedEvents() {
+        return replayedEvents;
+    }
+
+    //time spent replaying the log when the store was opened, in nanoseconds
+    public long getReplayNanos() {
+        return replayNanos;
+    }
+
+    //number of events in the current log, since the last compaction
+    public synchronized long getLoggedEvents() {
+        return log.getEventCount();
+    }
+
+    /**
+     * Adds a student to the network and connects them to the students they share an attribute with.
+     * A roommate the student already has must be in the network, so the log can refer to them.
+     * @param student The student to add.
+     * @throws IOException If the event cannot be logged.
+     */
+    public synchronized void addStudent(UniversityStudent student) throws IOException {
+        if (byName.containsKey(student.getName())) {
+            throw new IllegalArgumentException("A student with this name already exists: " + student.getName());
+        }
+        UniversityStudent roommate = student.getRoommate();
+        if (roommate != null && byName.get(roommate.getName()) != roommate) {
+            throw new IllegalArgumentException("Roommate of " + student.getName() + " is not in the network: "
+                    + roommate.getName());
+        }
+        log.addStudent(student);
+        graph.addStudent(student);
+        byName.put(student.getName(), student);
+        compactIfNeeded();
+    }
+
+    /**
+     * Removes a student and their edges from the network.
+     * @param student The student to remove.
+     * @throws IOException If the event cannot be logged.
+     */
+    public synchronized void removeStudent(UniversityStudent student) throws IOException {
+        checkMember(student);
+        log.removeStudent(student);
+        graph.removeStudent(student);
+        byName.remove(student.getName());
+        compactIfNeeded();
+    }
+
+    /**
+     * Recomputes the edges of a student after their attributes were changed through the setters.
+     * @param student The student whose attributes changed.
+     * @throws IOException If the event cannot be logged.
+     */
+    public synchronized void updateStudent(UniversityStudent student) throws IOException {
+        checkMember(student);
+        log.updateStudent(student);
+        graph.updateStudent(student);
+        compactIfNeeded();
+    }
+
+    /**
+     * Adds an edge between two students of the network.
+     * @param student1 The first student.
+     * @param student2 The second student.
+     * @param weight The weight of the edge.
+     * @throws IOException If the event cannot be logged.
+     */
+    public synchronized void addEdge(UniversityStudent student1, UniversityStudent student2, int weight)
+            throws IOException {
+        checkMember(student1);
+        checkMember(student2);
+        log.addEdge(student1, student2, weight);
+        graph.addEdge(student1, student2, weight);
+        compactIfNeeded();
+    }
+
+    /**
+     * Sets the roommate of a student, or clears it if roommate is null, and rescores the affected edges.
+     * Like {@link UniversityStudent#setRoommate(UniversityStudent)}, only this student's side is changed.
+     * @param student The student.
+     * @param roommate The new roommate, or null.
+     * @throws IOException If the event cannot be logged.
+     */
+    public synchronized void setRoommate(UniversityStudent student, UniversityStudent roommate) throws IOException {
+        checkMember(student);
+        if (roommate != null) {
+            checkMember(roommate);
+        }
+        log.setRoommate(student, roommate);
+        graph.setRoommate(student, roommate);
+        compactIfNeeded();
+    }
+
+    /**
+     * Records a friend request from one student to another, or accepts the receiver's request to the sender
+     * if there is one, the way {@link FriendRequestService} does. No edge is added for an accepted request.
+     * @param sender The student sending the request.
+     * @param receiver The student receiving it.
+     * @return What the request did.
+     * @throws IOException If the event cannot be logged.
+     */
+    public FriendRequestService.Outcome sendFriendRequest(UniversityStudent sender, UniversityStudent receiver)
+            throws IOException {
+        return sendFriendRequest(sender, receiver, 0);
+    }
+
+    /**
+     * Records a friend request from one student to another, or accepts the receiver's request to the sender
+     * if there is one and adds an edge between them. Requests that change nothing are not logged.
+     * @param sender The student sending the request.
+     * @param receiver The student receiving it.
+     * @param friendWeight The weight of the edge added if the request is accepted, or 0 for none.
+     * @return What the request did.
+     * @throws IOException If the event cannot be logged.
+     */
+    public synchronized FriendRequestService.Outcome sendFriendRequest(UniversityStudent sender,
+                                                                       UniversityStudent receiver, int friendWeight)
+            throws IOException {
+        checkMember(sender);
+        checkMember(receiver);
+        FriendRequestService.Outcome outcome = FriendRequestService.outcomeOf(sender, receiver);
+        if (outcome != FriendRequestService.Outcome.SENT && outcome != FriendRequestService.Outcome.ACCEPTED) {
+            return outcome;
+        }
+        boolean edge = outcome == FriendRequestService.Outcome.ACCEPTED && friendWeight > 0;
+        log.friendRequest(receiver, sender);
+        if (edge) {
+            log.addEdge(sender, receiver, friendWeight);
+        }
+        FriendRequestService.apply(sender, receiver, outcome);
+        if (edge) {
+            graph.addEdge(sender, receiver, friendWeight);
+        }
+        compactIfNeeded();
+        return outcome;
+    }
+
+    private void compactIfNeeded() throws IOException {
+        if (compactAfter > 0 && log.getEventCount() >= compactAfter) {
+            compact();
+        }
+    }
+
+    /**
+     * Writes the whole network to a new snapshot and empties the log.
+     * The snapshot records the next log generation, so if the process stops before the log is emptied,
+     * the old log is recognised as already compacted and is not replayed twice.
+     * @throws IOException If the snapshot or the log cannot be written.
+     */
+    public synchronized void compact() throws IOException {
+        long next = log.getGeneration() + 1;
+        writeSnapshot(directory, CompactStudentGraph.of(graph), next);
+        log.reset(next);
+    }
+
+    /**
+     * Forces every logged event to disk.
+     * @throws IOException If the log cannot be written.
+     */
+    public synchronized void sync() throws IOException {
+        log.sync();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        log.close();
+    }
+
+    //checked before an event is logged, so the log only holds events that can be applied
+    private void checkMember(UniversityStudent student) {
+        if (byName.get(student.getName()) != student) {
+            throw new IllegalArgumentException("Student is not in the network: " + student.getName());
+        }
+    }
+
+    private UniversityStudent student(String name) {
+        UniversityStudent s = byName.get(name);
+        if (s == null) {
+            throw new IllegalArgumentException("unknown student " + name);
+        }
+        return s;
+    }
+
+    //applies replayed events to the graph the same way the mutation methods do, without logging them
+    private class Replay implements NetworkChangeLog.Handler {
+        @Override
+        public void addStudent(String name, int age, String gender, int year, String major, double gpa,
+                               List<String> roommatePreferences, List<String> previousInternships,
+                               String roommate) {
+            UniversityStudent s = new UniversityStudent(name, age, gender, year, major, gpa, roommatePreferences,
+                    previousInternships);
+            if (roommate != null) {
+                s.setRoommate(student(roommate));
+            }
+            graph.addStudent(s);
+            byName.put(s.getName(), s);
+        }
+
+        @Override
+        public void removeStudent(String name) {
+            graph.removeStudent(student(name));
+            byName.remove(name);
+        }
+
+        @Override
+        public void updateStudent(String name, int age, String major, List<String> roommatePreferences,
+                                  List<String> previousInternships) {
+            UniversityStudent s = student(name);
+            s.setAge(age);
+            s.setMajor(major);
+            s.setRoommatePreferences(roommatePreferences);
+            s.setPreviousInternships(previousInternships);
+            graph.updateStudent(s);
+        }
+
+        @Override
+        public void addEdge(String student1, String student2, int weight) {
+            graph.addEdge(student(student1), student(student2), weight);
+        }
+
+        @Override
+        public void setRoommate(String student, String roommate) {
+            graph.setRoommate(student(student), roommate == null ? null : student(roommate));
+        }
+
+        //a request from a student in the network is decided again, accepting one the other way as it did when
+        //it was sent; older logs may hold requests from students outside the network
+        @Override
+        public void friendRequest(String receiver, String requester) {
+            UniversityStudent to = student(receiver);
+            UniversityStudent from = byName.get(requester);
+            if (from == null) {
+                to.addFriendRequest(requester);
+                return;
+            }
+            FriendRequestService.apply(from, to, FriendRequestService.outcomeOf(from, to));
+        }
+    }
+}
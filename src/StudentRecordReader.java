@@ -0,0 +1,267 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * StudentRecordReader streams UniversityStudent objects out of a student file, one "Student:" block at a time.
+ * It reads the file through a FileChannel into a reusable direct ByteBuffer and works on the raw UTF-8 bytes:
+ * lines are trimmed and split in place, field names are matched against pre-encoded byte keys, and only field
+ * values are decoded into Strings. Memory use is bounded by the buffer size and one student entry, whatever
+ * the size of the file. The accepted format and the errors are the same as {@link DataParser#parseStudents(String)}.
+ */
+public class StudentRecordReader implements Iterator<UniversityStudent>, Closeable {
+    static final int DEFAULT_BUFFER_SIZE = 8 * 1024 * 1024;
+
+    //field names in the order of UniversityStudent.fromFields
+    private static final byte[][] KEYS = {
+            bytes("Name"), bytes("Age"), bytes("Gender"), bytes("Year"), bytes("Major"), bytes("GPA"),
+            bytes("RoommatePreferences"), bytes("PreviousInternships")
+    };
+    private static final byte[] STUDENT_HEADER = bytes("Student:");
+
+    private final FileChannel channel;
+    private final boolean ownsChannel;
+    private final long end;
+    private long position;
+    private ByteBuffer buffer;
+    private byte[] scratch = new byte[256];
+    private boolean eof;
+
+    private final String[] fields = new String[KEYS.length];
+    private boolean blockHasFields;
+    private long line; // number of lines read so far
+    private long entryLine; // line where the current entry starts, 0 before it has started
+    private UniversityStudent next;
+
+    /**
+     * Opens a reader over a whole student file.
+     * @param filename The file to read.
+     * @throws IOException If the file cannot be opened.
+     */
+    public StudentRecordReader(String filename) throws IOException {
+        this(FileChannel.open(new File(filename).toPath()), true, 0, -1, DEFAULT_BUFFER_SIZE);
+    }
+
+    //reads the bytes [start, end) of the channel, or up to the end of the channel if end is negative
+    StudentRecordReader(FileChannel channel, boolean ownsChannel, long start, long end, int bufferSize) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.position = start;
+        this.end = end < 0 ? channel.size() : end;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.buffer.limit(0);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readStudent();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public UniversityStudent next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        UniversityStudent student = next;
+        next = null;
+        return student;
+    }
+
+    //reads lines until a student entry is complete, returns null at the end of the input
+    private UniversityStudent readStudent() throws IOException {
+        while (true) {
+            int lineEnd = findLineEnd();
+            if (lineEnd < 0) {
+                //end of input: the last entry has no "Student:" line after it
+                return blockHasFields ? finishBlock() : null;
+            }
+            int from = buffer.position();
+            buffer.position(lineEnd < buffer.limit() ? lineEnd + 1 : lineEnd);
+            line++;
+
+            int start = skipSpace(from, lineEnd);
+            int stop = trimEnd(start, lineEnd);
+            if (start == stop) {
+                continue; // skip empty lines
+            }
+            if (matches(start, stop, STUDENT_HEADER)) {
+                if (blockHasFields) {
+                    UniversityStudent student = finishBlock();
+                    entryLine = line;
+                    return student;
+                }
+                entryLine = line;
+                continue;
+            }
+
+            int colon = indexOf(start, stop, (byte) ':');
+            if (colon < 0) {
+                continue; // not a "Field: Value" line
+            }
+            if (entryLine == 0) {
+                entryLine = line; // an entry without a "Student:" line, at the start of the input
+            }
+            blockHasFields = true;
+            int keyStop = trimEnd(start, colon);
+            for (int k = 0; k < KEYS.length; k++) {
+                if (matches(start, keyStop, KEYS[k])) {
+                    int valueStart = skipSpace(colon + 1, stop);
+                    fields[k] = decode(valueStart, stop);
+                    break;
+                }
+            }
+        }
+    }
+
+    private UniversityStudent finishBlock() {
+        UniversityStudent student = UniversityStudent.fromFields(fields[0], fields[1], fields[2], fields[3],
+                fields[4], fields[5], fields[6], fields[7]);
+        Arrays.fill(fields, null);
+        blockHasFields = false;
+        entryLine = 0;
+        return student;
+    }
+
+    //number of lines read so far, relative to where this reader started
+    long linesRead() {
+        return line;
+    }
+
+    //line where the entry that is being read starts, relative to where this reader started
+    long entryLine() {
+        return entryLine;
+    }
+
+    /**
+     * Skips to the start of the next "Student:" line, without parsing anything.
+     * The line the reader is positioned in is skipped first, since it may only be partly in the input.
+     * @return The file offset of the next "Student:" line, or the end of the input if there is none.
+     */
+    long skipToNextHeader() throws IOException {
+        boolean first = true;
+        while (true) {
+            int lineEnd = findLineEnd();
+            if (lineEnd < 0) {
+                return end;
+            }
+            int from = buffer.position();
+            long offset = position - buffer.limit() + from;
+            buffer.position(lineEnd < buffer.limit() ? lineEnd + 1 : lineEnd);
+            int start = skipSpace(from, lineEnd);
+            int stop = trimEnd(start, lineEnd);
+            if (!first && matches(start, stop, STUDENT_HEADER)) {
+                return offset;
+            }
+            first = false;
+        }
+    }
+
+    //returns the index of the next '\n' in the buffer (refilling it as needed), buffer.limit() for a last
+    //line without one, or -1 when there is nothing left
+    private int findLineEnd() throws IOException {
+        int scanned = buffer.position();
+        while (true) {
+            for (int i = scanned; i < buffer.limit(); i++) {
+                if (buffer.get(i) == '\n') {
+                    return i;
+                }
+            }
+            if (eof) {
+                return buffer.hasRemaining() ? buffer.limit() : -1;
+            }
+            scanned = buffer.remaining();
+            fill();
+        }
+    }
+
+    //moves the unread bytes to the front of the buffer and reads more after them
+    private void fill() throws IOException {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            //a single line longer than the buffer: grow it
+            ByteBuffer bigger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+            buffer.flip();
+            bigger.put(buffer);
+            buffer = bigger;
+        }
+        int limit = (int) Math.min(buffer.remaining(), end - position);
+        if (limit <= 0) {
+            eof = true;
+        } else {
+            ByteBuffer window = buffer.duplicate();
+            window.limit(window.position() + limit);
+            int read = channel.read(window, position);
+            if (read < 0) {
+                eof = true;
+            } else {
+                position += read;
+                buffer.position(buffer.position() + read);
+            }
+        }
+        buffer.flip();
+    }
+
+    private int skipSpace(int from, int to) {
+        while (from < to && (buffer.get(from) & 0xff) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private int trimEnd(int from, int to) {
+        while (to > from && (buffer.get(to - 1) & 0xff) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private int indexOf(int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean matches(int from, int to, byte[] key) {
+        if (to - from != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (buffer.get(from + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String decode(int from, int to) {
+        int length = to - from;
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(from, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
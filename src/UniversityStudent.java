@@ -1,4 +1,6 @@
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * UniversityStudent class extends the Student class and represents a university student.
@@ -8,8 +10,17 @@ public class UniversityStudent extends Student {
     // TODO: Constructor and additional methods to be implemented
 
     private UniversityStudent roommate; 
-    private List<String> friendRequests = new ArrayList<>();
-    private List<String> chatHistory = new ArrayList<>();
+    //names of the students with a pending request to this one, oldest first, and of their friends (null until
+    //the first); guarded by friendLock
+    private final Set<String> friendRequests = new LinkedHashSet<>();
+    private Set<String> friends;
+    private final ReentrantLock friendLock = new ReentrantLock();
+    private volatile ChatHistory chatHistory; // created on the first message, so students who never chat do not touch the store
+    private static final AtomicReferenceFieldUpdater<UniversityStudent, ChatHistory> CHAT_HISTORY =
+            AtomicReferenceFieldUpdater.newUpdater(UniversityStudent.class, ChatHistory.class, "chatHistory");
+
+    //major and internships encoded through AttributeDictionary, redone if either field is given a new value
+    private Encoding encoding;
 
 
 
@@ -29,21 +40,58 @@ public class UniversityStudent extends Student {
 
         this.name = name;
         this.age = age;
-        this.gender = gender;
+        this.gender = AttributeDictionary.canonical(gender);
         this.year = year;
-        this.major = major;
+        this.major = AttributeDictionary.canonical(major);
         this.gpa = gpa;
-        this.roommatePreferences = roommatePreferences;
-        this.previousInternships = previousInternships;
+        this.roommatePreferences = Collections.unmodifiableList(new ArrayList<>(roommatePreferences));
+        this.previousInternships = AttributeDictionary.canonicalList(previousInternships);
         this.roommate = null; //intialize to null, no roommate assigned yet
     }
 
+    //returns the dictionary IDs of the major and internships, encoding them again if the fields were reassigned
+    private Encoding encoded() {
+        Encoding e = encoding;
+        if (e == null || e.major != major || e.internships != previousInternships) {
+            e = new Encoding(major, previousInternships);
+            encoding = e;
+        }
+        return e;
+    }
+
+    //dictionary ID of the major
+    int majorId() {
+        return encoded().majorId;
+    }
+
+    //dictionary IDs of the internships, sorted, one entry per listed internship; do not modify
+    int[] internshipIds() {
+        return encoded().internshipIds;
+    }
+
 
  //Setter for roommate - used in Gale-Shapley algorithm
  public void setRoommate(UniversityStudent roommate) {
     this.roommate = roommate;
 }
 
+//setters for the attributes used in connection strength; call StudentGraph.updateStudent afterwards
+public void setAge(int age) {
+    this.age = age;
+}
+
+public void setMajor(String major) {
+    this.major = AttributeDictionary.canonical(major);
+}
+
+public void setPreviousInternships(List<String> previousInternships) {
+    this.previousInternships = AttributeDictionary.canonicalList(previousInternships);
+}
+
+public void setRoommatePreferences(List<String> roommatePreferences) {
+    this.roommatePreferences = Collections.unmodifiableList(new ArrayList<>(roommatePreferences));
+}
+
 //getter for roomate
 public UniversityStudent getRoommate() {
     return roommate;
@@ -58,26 +106,135 @@ public String getName() {
     return name;
 }
 
-//getter for internships
+//getters for the attributes roommate assignment can be partitioned by
+public String getGender() {
+    return gender;
+}
+
+public int getYear() {
+    return year;
+}
+
+//getter for internships; the list cannot be modified, use setPreviousInternships
 public List<String> PreviousInternships() {
     return previousInternships;
 }
 
+//returns the names of the students whose friend request is pending, oldest first, as an unmodifiable copy
 public List<String> getFriendRequests() {
-    return friendRequests;
+    friendLock.lock();
+    try {
+        return Collections.unmodifiableList(new ArrayList<>(friendRequests));
+    } finally {
+        friendLock.unlock();
+    }
+}
+
+public boolean hasFriendRequestFrom(String requester) {
+    friendLock.lock();
+    try {
+        return friendRequests.contains(requester);
+    } finally {
+        friendLock.unlock();
+    }
+}
+
+//returns the names of the students who accepted this student's friend request or whose request they accepted,
+//as an unmodifiable copy
+public Set<String> getFriends() {
+    friendLock.lock();
+    try {
+        return friends == null ? Collections.emptySet() : Collections.unmodifiableSet(new LinkedHashSet<>(friends));
+    } finally {
+        friendLock.unlock();
+    }
+}
+
+public boolean isFriendOf(String other) {
+    friendLock.lock();
+    try {
+        return friends != null && friends.contains(other);
+    } finally {
+        friendLock.unlock();
+    }
 }
 
+//returns every message received as "sender: message", oldest first; use getChatPage for long histories
 public List<String> getChatHistory() {
-    return chatHistory;
+    ChatHistory chatHistory = this.chatHistory;
+    if (chatHistory == null) {
+        return Collections.emptyList();
+    }
+    List<ChatMessage> messages = chatHistory.page(0, (int) Math.min(Integer.MAX_VALUE, chatHistory.size()));
+    List<String> lines = new ArrayList<>(messages.size());
+    for (ChatMessage message : messages) {
+        lines.add(message.toString());
+    }
+    return Collections.unmodifiableList(lines);
 }
 
-public void addFriendRequest(String requester) {
-    friendRequests.add(requester);
+//returns up to limit received messages, starting at position offset from the oldest
+public List<ChatMessage> getChatPage(long offset, int limit) {
+    ChatHistory chatHistory = this.chatHistory;
+    if (chatHistory == null) {
+        ChatHistory.checkPage(offset, limit);
+        return Collections.emptyList();
+    }
+    return chatHistory.page(offset, limit);
+}
+
+//returns the chat history, paged and grouped by sender, creating it if no message has arrived yet
+public ChatHistory getChats() {
+    return chats();
+}
+
+//returns the chat history, creating it in the shared store on first use
+private ChatHistory chats() {
+    ChatHistory history = chatHistory;
+    if (history == null) {
+        history = ChatHistoryStore.shared().newHistory();
+        if (!CHAT_HISTORY.compareAndSet(this, null, history)) {
+            history = chatHistory; // another thread created it first
+        }
+    }
+    return history;
+}
+
+//records a pending friend request, returning false if one from the same student was pending already;
+//FriendRequestService also accepts a request the other way instead
+public boolean addFriendRequest(String requester) {
+    friendLock.lock();
+    try {
+        return friendRequests.add(requester);
+    } finally {
+        friendLock.unlock();
+    }
+}
+
+//removes a pending friend request, returning false if there was none
+boolean removeFriendRequest(String requester) {
+    friendLock.lock();
+    try {
+        return friendRequests.remove(requester);
+    } finally {
+        friendLock.unlock();
+    }
+}
+
+void addFriend(String other) {
+    friendLock.lock();
+    try {
+        if (friends == null) {
+            friends = new HashSet<>();
+        }
+        friends.add(other);
+    } finally {
+        friendLock.unlock();
+    }
 }
 
 public void addChatMessage(String sender, String message) {
-    // Update implementation to handle sender and message
-    chatHistory.add(sender + ": " + message);
+    chats().add(sender, message);
 }
 
 //create universitystudent from map of key-value pairs
@@ -90,7 +247,11 @@ public static UniversityStudent fromMap(Map<String, String> data){
     String gpaStr = data.get("GPA");
     String roommatePreferencesStr = data.get("RoommatePreferences");
     String previousInternshipsStr = data.get("PreviousInternships");
+    return fromFields(name, ageStr, gender, yearStr, major, gpaStr, roommatePreferencesStr, previousInternshipsStr);
+}
 
+//create universitystudent from the raw field values of a student entry, null for missing fields
+static UniversityStudent fromFields(String name, String ageStr, String gender, String yearStr, String major, String gpaStr, String roommatePreferencesStr, String previousInternshipsStr){
     //check for missing values
     if(name == null || ageStr == null || gender == null || yearStr == null || major == null || gpaStr == null || roommatePreferencesStr == null || previousInternshipsStr == null){
         throw new IllegalArgumentException("Missing required field in student entry.");
@@ -149,14 +310,25 @@ public int calculateConnectionStrength(Student other) {
         if(this.roommate != null && this.roommate.equals(o)){
             strength += 4;
         }
-        //+3 for each shared internship
-        for(String internship: this.previousInternships){
-            if(o.previousInternships.contains(internship)){
+        //+3 for each shared internship, walking both sorted ID arrays once
+        Encoding encodedMine = this.encoded();
+        Encoding encodedTheirs = o.encoded();
+        int[] mine = encodedMine.internshipIds;
+        int[] theirs = encodedTheirs.internshipIds;
+        int j = 0;
+        for(int internship: mine){
+            while(j < theirs.length && theirs[j] < internship){
+                j++;
+            }
+            if(j == theirs.length){
+                break;
+            }
+            if(theirs[j] == internship){
                 strength += 3;
             }
         }
         //+2 if same major
-        if(this.major.equals(o.major)){
+        if(encodedMine.majorId == encodedTheirs.majorId){
             strength += 2;
         }
         //+1 if same age
@@ -185,4 +357,20 @@ Iterable<String> previousInternships() {
     throw new UnsupportedOperationException("Not supported yet.");
 }
 
+//the major and internships as dictionary IDs, with the field values they were encoded from
+private static final class Encoding {
+    final String major;
+    final List<String> internships;
+    final int majorId;
+    final int[] internshipIds;
+
+    Encoding(String major, List<String> internships) {
+        this.major = major;
+        this.internships = internships;
+        this.majorId = AttributeDictionary.idOf(major);
+        this.internshipIds = AttributeDictionary.idsOf(internships);
+        Arrays.sort(this.internshipIds);
+    }
+}
+
 }
\ No newline at end of file